@@ -0,0 +1,304 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.seminar.examples.java8.DefaultMethodExamplesTest.Logger;
+
+/**
+ * A {@link Logger} which doesn't write messages on the caller's thread, unlike {@link Logger#log(String, String)} or
+ * {@link DefaultMethodExamplesTest.MyLoggerImpl}. Instead, callers (producers) publish each message to a bounded,
+ * pre-allocated ring buffer, and a single background thread (the consumer) drains the buffer in batches to a
+ * {@link Writer}, one message per line, flushing the writer whenever the buffer has been emptied.
+ * <p>
+ * The ring buffer is lock-free for multiple producers and a single consumer. Each slot has a sequence no., which tells
+ * a producer claiming the slot for the nth message whether the consumer has freed it (sequence n), and the consumer
+ * whether the nth message has been published to it (sequence n + 1). A producer claims a slot with a single CAS of the
+ * tail of the buffer, stores the message, and publishes the slot's sequence - so logging doesn't allocate, block or
+ * perform I/O, provided the buffer isn't full. The consumer sleeps briefly when the buffer is empty, rather than being
+ * woken by producers, to keep them free of any signalling.
+ * <p>
+ * What happens when a producer finds the buffer full is determined by the {@link OverflowPolicy}. Messages which are
+ * discarded are counted - see {@link #dropped()}.
+ * <p>
+ * {@link #close()} sets a bit of the tail, so that every message is either claimed before the logger is closed, and
+ * written by the consumer before it stops, or is dropped (and counted). {@link IOException}s thrown by the writer are
+ * held, and rethrown by {@link #close()}.
+ */
+final class AsyncLogger implements Logger, Closeable {
+
+  /** The max no. of messages the consumer writes before checking whether to flush. */
+  private static final int MAX_BATCH_SIZE = 256;
+  private static final long CONSUMER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+  /** The bit of the tail which is set when the logger is closed. */
+  private static final long CLOSED_BIT = 1L << 62;
+
+  // The results of trying to publish a message
+  private static final int PUBLISHED = 0;
+  private static final int FULL = 1;
+  private static final int CLOSED = 2;
+
+  /**
+   * What a producer does when the buffer is full.
+   */
+  enum OverflowPolicy {
+    /** Wait for the consumer to free a slot, so no message is lost, at the cost of the producer's latency. */
+    BLOCK,
+    /** Discard the message. */
+    DROP,
+    /** Keep only every (sample rate)th message which overflows, waiting to publish it, and discard the others. */
+    SAMPLE
+  }
+
+  private final Writer writer;
+  private final OverflowPolicy policy;
+  private final int sampleRate;
+  private final int mask;
+  private final Level[] levels;
+  private final String[] messages;
+  private final AtomicLongArray sequences;
+  /** The sequence no. of the next message to be claimed by a producer, with {@link #CLOSED_BIT} set once closed. */
+  private final AtomicLong tail = new AtomicLong();
+  /** The sequence no. of the next message to be written by the consumer, only accessed by the consumer. */
+  private long head;
+  private final LongAdder dropped = new LongAdder();
+  private final AtomicLong overflowed = new AtomicLong();
+  private final Thread consumer;
+  private IOException writeFailure;
+
+  /**
+   * @param writer The writer to which messages are written, e.g. a {@link java.io.BufferedWriter}.
+   * @param capacity The no. of messages the buffer can hold, which is rounded up to a power of 2.
+   * @param policy What a producer does when the buffer is full.
+   * @param sampleRate For {@link OverflowPolicy#SAMPLE}, the no. of overflowing messages per message which is kept.
+   */
+  AsyncLogger(Writer writer, int capacity, OverflowPolicy policy, int sampleRate) {
+    if (capacity < 1 || capacity > 1 << 30 || sampleRate < 1) {
+      throw new IllegalArgumentException("Invalid capacity [" + capacity + "] or sample rate [" + sampleRate + "]");
+    }
+    this.writer = writer;
+    this.policy = policy;
+    this.sampleRate = sampleRate;
+    final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = size - 1;
+    this.levels = new Level[size];
+    this.messages = new String[size];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      this.sequences.set(i, i);
+    }
+    this.consumer = new Thread(this::consume, "async-logger");
+    this.consumer.setDaemon(true);
+    this.consumer.start();
+  }
+
+  /**
+   * @param writer The writer to which messages are written.
+   * @param capacity The no. of messages the buffer can hold, which is rounded up to a power of 2.
+   * @param policy What a producer does when the buffer is full - {@link OverflowPolicy#BLOCK} or
+   * {@link OverflowPolicy#DROP}.
+   */
+  AsyncLogger(Writer writer, int capacity, OverflowPolicy policy) {
+    this(writer, capacity, policy, 1);
+  }
+
+  @Override
+  public void info(String message) {
+    publish(Level.INFO, message);
+  }
+
+  @Override
+  public void error(String message) {
+    publish(Level.ERROR, message);
+  }
+
+  @Override
+  public void warn(String message) {
+    publish(Level.WARN, message);
+  }
+
+  /**
+   * @return The no. of messages discarded because the buffer was full (or the logger was closed).
+   */
+  long dropped() {
+    return this.dropped.sum();
+  }
+
+  private void publish(Level level, String message) {
+    if (!isEnabled(level)) {
+      return;
+    }
+    int result = tryPublish(level, message);
+    if (result == FULL) {
+      switch (this.policy) {
+        case DROP:
+          this.dropped.increment();
+          return;
+        case SAMPLE:
+          if (this.overflowed.incrementAndGet() % this.sampleRate != 0) {
+            this.dropped.increment();
+            return;
+          }
+          break;
+        default:
+          break;
+      }
+      while ((result = tryPublish(level, message)) == FULL) {
+        Thread.yield();
+      }
+    }
+    if (result == CLOSED) {
+      this.dropped.increment();
+    }
+  }
+
+  /**
+   * @return {@link #PUBLISHED}, {@link #FULL} if the buffer is full, or {@link #CLOSED} if the logger is closed.
+   */
+  private int tryPublish(Level level, String message) {
+    long sequence = this.tail.get();
+    while (true) {
+      if ((sequence & CLOSED_BIT) != 0) {
+        return CLOSED;
+      }
+      final int slot = (int) sequence & this.mask;
+      final long available = this.sequences.get(slot) - sequence;
+      if (available == 0) {
+        // Fails if the logger has been closed, as that sets the closed bit of the tail
+        if (this.tail.compareAndSet(sequence, sequence + 1)) {
+          this.levels[slot] = level;
+          this.messages[slot] = message;
+          // Publish the message to the consumer
+          this.sequences.lazySet(slot, sequence + 1);
+          return PUBLISHED;
+        }
+        sequence = this.tail.get();
+      } else if (available < 0) {
+        // The slot still holds the message claimed a lap earlier
+        return FULL;
+      } else {
+        // Another producer has claimed the slot
+        sequence = this.tail.get();
+      }
+    }
+  }
+
+  private void consume() {
+    boolean unflushed = false;
+    while (true) {
+      final int written = drain();
+      if (written > 0) {
+        unflushed = true;
+      } else {
+        if (unflushed) {
+          flush();
+          unflushed = false;
+        }
+        // Once closed, no more messages can be claimed, so stop when every claimed message has been written
+        final long tail = this.tail.get();
+        if ((tail & CLOSED_BIT) != 0 && this.head == (tail & ~CLOSED_BIT)) {
+          return;
+        }
+        LockSupport.parkNanos(this, CONSUMER_PARK_NANOS);
+      }
+    }
+  }
+
+  /**
+   * Writes up to a batch of published messages.
+   *
+   * @return The no. of messages written.
+   */
+  private int drain() {
+    int written = 0;
+    while (written < MAX_BATCH_SIZE) {
+      final int slot = (int) this.head & this.mask;
+      if (this.sequences.get(slot) != this.head + 1) {
+        break;
+      }
+      final Level level = this.levels[slot];
+      final String message = this.messages[slot];
+      this.levels[slot] = null;
+      this.messages[slot] = null;
+      // Free the slot for the message a lap later
+      this.sequences.lazySet(slot, this.head + this.mask + 1);
+      this.head++;
+      if (this.writeFailure == null) {
+        try {
+          this.writer.write(level.prefix());
+          this.writer.write(' ');
+          this.writer.write(String.valueOf(message));
+          this.writer.write(LINE_SEPARATOR);
+        } catch (IOException e) {
+          this.writeFailure = e;
+        }
+      }
+      written++;
+    }
+    return written;
+  }
+
+  private void flush() {
+    if (this.writeFailure == null) {
+      try {
+        this.writer.flush();
+      } catch (IOException e) {
+        this.writeFailure = e;
+      }
+    }
+  }
+
+  /**
+   * Writes every message published before the logger was closed, stops the consumer, and closes the writer. Messages
+   * published once the logger is closed are dropped (and counted).
+   *
+   * @throws IOException If the writer failed to write a message, or to close.
+   */
+  @Override
+  public void close() throws IOException {
+    // Setting the closed bit of the tail stops any further message being claimed
+    if ((this.tail.getAndUpdate(tail -> tail | CLOSED_BIT) & CLOSED_BIT) != 0) {
+      return;
+    }
+    LockSupport.unpark(this.consumer);
+    try {
+      this.consumer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted waiting for the consumer to stop", e);
+    }
+    try {
+      this.writer.close();
+    } catch (IOException e) {
+      if (this.writeFailure == null) {
+        throw e;
+      }
+      this.writeFailure.addSuppressed(e);
+    }
+    if (this.writeFailure != null) {
+      throw this.writeFailure;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.seminar.examples.java8.AsyncLogger.OverflowPolicy;
+import com.seminar.examples.java8.DefaultMethodExamplesTest.Logger;
+
+/**
+ * JMH benchmark of the latency of logging a message on the caller's thread, using an {@link AsyncLogger}, against a
+ * {@link DefaultMethodExamplesTest.MyLoggerImpl}, which writes each message inline, with several threads logging
+ * concurrently to the same logger.
+ * <p>
+ * Latency is sampled, rather than averaged, so that the results include percentiles - including the cost of the
+ * occasional wait for a full buffer with {@link OverflowPolicy#BLOCK}. Both loggers write to a writer which discards
+ * its output, so the inline logger's cost is that of formatting and the writer's lock, rather than of I/O.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class AsyncLoggerBenchmark {
+
+  private static final String MESSAGE = "Logged by a request thread.";
+
+  /**
+   * The loggers.
+   */
+  @State(Scope.Benchmark)
+  public static class Loggers {
+    @Param({ "1024", "65536" })
+    int capacity;
+
+    /** The name of an {@link OverflowPolicy}, as JMH can't generate a param of a nested enum type. */
+    @Param({ "BLOCK", "DROP" })
+    String policy;
+
+    AsyncLogger asyncLogger;
+    Logger inlineLogger;
+
+    @Setup
+    public void setUp() {
+      this.asyncLogger = new AsyncLogger(new NullWriter(), this.capacity, OverflowPolicy.valueOf(this.policy));
+      this.inlineLogger = new DefaultMethodExamplesTest().new MyLoggerImpl(new NullWriter());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+      this.asyncLogger.close();
+    }
+  }
+
+  @Benchmark
+  public void asyncLogger(Loggers l) {
+    l.asyncLogger.info(MESSAGE);
+  }
+
+  @Benchmark
+  public void inlineLogger(Loggers l) {
+    l.inlineLogger.info(MESSAGE);
+  }
+
+  /**
+   * A writer which discards its output.
+   */
+  private static final class NullWriter extends Writer {
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
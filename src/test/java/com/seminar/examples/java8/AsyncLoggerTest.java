@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.AsyncLogger.OverflowPolicy;
+
+/**
+ * Tests for {@link AsyncLogger}.
+ */
+public class AsyncLoggerTest {
+
+  @Test
+  public void testLog() throws IOException {
+    final StringWriter writer = new StringWriter();
+    try (AsyncLogger logger = new AsyncLogger(writer, 16, OverflowPolicy.BLOCK)) {
+      logger.info("Logged info.");
+      logger.warn("Logged warning.");
+      logger.error("Logged error.");
+    }
+
+    assertThat(writer.toString(), is(String.join(System.lineSeparator(), "[INFO] Logged info.",
+        "[WARN] Logged warning.", "[ERROR] Logged error.", "")));
+  }
+
+  @Test
+  public void testBlockFromSeveralProducers() throws Exception {
+    final int producers = 4;
+    final int messagesPerProducer = 50_000;
+    final StringWriter writer = new StringWriter();
+    final ExecutorService executor = Executors.newFixedThreadPool(producers);
+    // A small buffer, so producers often find it full
+    try (AsyncLogger logger = new AsyncLogger(writer, 64, OverflowPolicy.BLOCK)) {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        final int producer = p;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < messagesPerProducer; i++) {
+            logger.info(producer + ":" + i);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertThat(logger.dropped(), is(0L));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    final List<String> lines = Arrays.asList(writer.toString().split(System.lineSeparator()));
+    assertThat(lines.size(), is(producers * messagesPerProducer));
+    // Each producer's messages are written in the order they were logged
+    for (int p = 0; p < producers; p++) {
+      final String prefix = "[INFO] " + p + ":";
+      assertThat(lines.stream().filter(line -> line.startsWith(prefix)).collect(Collectors.toList()),
+          is(IntStream.range(0, messagesPerProducer).mapToObj(i -> prefix + i).collect(Collectors.toList())));
+    }
+  }
+
+  @Test
+  public void testDropWhenFull() throws IOException {
+    final BlockingWriter writer = new BlockingWriter();
+    try (AsyncLogger logger = new AsyncLogger(writer, 8, OverflowPolicy.DROP)) {
+      for (int i = 0; i < 100; i++) {
+        logger.info("message " + i);
+      }
+      // The consumer holds at most one message while blocked, and the buffer the rest
+      assertThat(logger.dropped(), greaterThan(100L - 8 - 1 - 1));
+      writer.release();
+    }
+
+    assertThat(writer.toString().startsWith("[INFO] message 0" + System.lineSeparator()), is(true));
+  }
+
+  @Test
+  public void testSampleWhenFull() throws Exception {
+    final BlockingWriter writer = new BlockingWriter();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (AsyncLogger logger = new AsyncLogger(writer, 8, OverflowPolicy.SAMPLE, 10)) {
+      final Future<?> producer = executor.submit(() -> {
+        for (int i = 0; i < 1_000; i++) {
+          logger.info("message " + i);
+        }
+      });
+      // Release the writer once the producer has had to wait to publish a sampled message
+      while (logger.dropped() < 9) {
+        Thread.sleep(1);
+      }
+      writer.release();
+      producer.get(30, TimeUnit.SECONDS);
+      // Roughly 9 of every 10 messages which overflowed were dropped
+      assertThat(logger.dropped(), greaterThan(8L));
+      assertThat(logger.dropped(), lessThan(1_000L));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testEveryMessageIsWrittenOrDroppedWhenClosedConcurrently() throws Exception {
+    final int producers = 4;
+    final int messagesPerProducer = 20_000;
+    final StringWriter writer = new StringWriter();
+    final ExecutorService executor = Executors.newFixedThreadPool(producers);
+    final AsyncLogger logger = new AsyncLogger(writer, 64, OverflowPolicy.BLOCK);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < messagesPerProducer; i++) {
+            logger.info("message");
+          }
+        }));
+      }
+      // Close while the producers are still logging
+      while (logger.dropped() == 0 && writer.getBuffer().length() < 1_000) {
+        Thread.yield();
+      }
+      logger.close();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    final long written = writer.toString().split(System.lineSeparator()).length;
+    assertThat(written + logger.dropped(), is((long) producers * messagesPerProducer));
+  }
+
+  @Test(expected = IOException.class)
+  public void testCloseRethrowsWriteFailure() throws IOException {
+    final Writer failingWriter = new Writer() {
+      @Override
+      public void write(char[] cbuf, int off, int len) throws IOException {
+        throw new IOException("Disk full");
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    try (AsyncLogger logger = new AsyncLogger(failingWriter, 8, OverflowPolicy.BLOCK)) {
+      logger.error("Not written.");
+    }
+  }
+
+  /**
+   * A writer which blocks until released.
+   */
+  private static final class BlockingWriter extends Writer {
+    private final StringWriter out = new StringWriter();
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    void release() {
+      this.released.countDown();
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      try {
+        this.released.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      this.out.write(cbuf, off, len);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+      return this.out.toString();
+    }
+  }
+}
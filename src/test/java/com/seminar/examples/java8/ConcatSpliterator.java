@@ -0,0 +1,209 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A spliterator which lazily concatenates any no. of other spliterators, as an alternative to nesting invocations of
+ * {@link Stream#concat(Stream, Stream)}, which for a large no. of sources results in a deep pipeline that can overflow
+ * the stack, and splits poorly when processed in parallel (see
+ * {@link StreamApiExamplesTest#testConcatenateTwoLists()}).
+ * <p>
+ * The sources are held in a flat array. When split, the spliterator first splits at the source boundary which best
+ * balances the estimated no. of elements either side, and only splits an individual source once a single source
+ * remains. It is SIZED and SUBSIZED if all of its sources are, and ORDERED if all of its sources are. No intermediate
+ * collection is created.
+ *
+ * @param <T> The type of element.
+ */
+final class ConcatSpliterator<T> implements Spliterator<T> {
+
+  private static final int MERGED_CHARACTERISTICS = ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE | CONCURRENT;
+
+  private final Spliterator<? extends T>[] sources;
+  /** The index of the current source. */
+  private int from;
+  /** The exclusive index of the last source. */
+  private final int to;
+  /**
+   * The characteristics, computed when the spliterator is created or split, so they don't change as traversal consumes
+   * sources.
+   */
+  private int characteristics;
+
+  private ConcatSpliterator(Spliterator<? extends T>[] sources, int from, int to) {
+    this.sources = sources;
+    this.from = from;
+    this.to = to;
+    this.characteristics = mergedCharacteristics();
+  }
+
+  /**
+   * @param collections The collections to concatenate, in order.
+   * @param <T> The type of element.
+   * @return A lazily concatenated stream of the elements of each of the supplied collections.
+   */
+  static <T> Stream<T> concat(Collection<? extends Collection<? extends T>> collections) {
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    final Spliterator<? extends T>[] sources = new Spliterator[collections.size()];
+    int i = 0;
+    for (Collection<? extends T> collection : collections) {
+      sources[i++] = collection.spliterator();
+    }
+    return StreamSupport.stream(new ConcatSpliterator<>(sources, 0, sources.length), false);
+  }
+
+  /**
+   * @param streams The streams to concatenate, in order.
+   * @param <T> The type of element.
+   * @return A lazily concatenated stream of the elements of each of the supplied streams. Closing the stream closes
+   * each of the supplied streams.
+   */
+  @SafeVarargs
+  static <T> Stream<T> concat(Stream<? extends T>... streams) {
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    final Spliterator<? extends T>[] sources = new Spliterator[streams.length];
+    // A copy of the streams to close, so the varargs array isn't retained by the close handler
+    final Stream<?>[] toClose = new Stream<?>[streams.length];
+    boolean parallel = false;
+    for (int i = 0; i < streams.length; i++) {
+      sources[i] = streams[i].spliterator();
+      toClose[i] = streams[i];
+      parallel |= streams[i].isParallel();
+    }
+    return StreamSupport.stream(new ConcatSpliterator<>(sources, 0, sources.length), parallel)
+        .onClose(() -> closeAll(toClose));
+  }
+
+  private static void closeAll(Stream<?>[] streams) {
+    RuntimeException exception = null;
+    for (Stream<?> stream : streams) {
+      try {
+        stream.close();
+      } catch (RuntimeException e) {
+        if (exception == null) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    while (this.from < this.to) {
+      if (this.sources[this.from].tryAdvance(action)) {
+        return true;
+      }
+      this.sources[this.from++] = null;
+    }
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    while (this.from < this.to) {
+      this.sources[this.from].forEachRemaining(action);
+      this.sources[this.from++] = null;
+    }
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    final int remainingSources = this.to - this.from;
+    if (remainingSources == 0) {
+      return null;
+    }
+    if (remainingSources == 1) {
+      @SuppressWarnings("unchecked")
+      final Spliterator<T> prefix = (Spliterator<T>) this.sources[this.from].trySplit();
+      if (prefix != null) {
+        this.characteristics = mergedCharacteristics();
+      }
+      return prefix;
+    }
+    final int split = balancedSplit();
+    final Spliterator<T> prefix = split - this.from == 1 ? castSource(this.from)
+        : new ConcatSpliterator<>(this.sources, this.from, split);
+    this.from = split;
+    this.characteristics = mergedCharacteristics();
+    return prefix;
+  }
+
+  /**
+   * @return The index of the source boundary which best halves the estimated no. of elements, such that there's at
+   * least one source either side of it.
+   */
+  private int balancedSplit() {
+    final long half = estimateSize() / 2;
+    long size = 0;
+    int split = this.from + 1;
+    for (int i = this.from; i < this.to - 1; i++) {
+      size += this.sources[i].estimateSize();
+      split = i + 1;
+      if (size >= half || size < 0) {
+        break;
+      }
+    }
+    return split;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Spliterator<T> castSource(int index) {
+    return (Spliterator<T>) this.sources[index];
+  }
+
+  @Override
+  public long estimateSize() {
+    long size = 0;
+    for (int i = this.from; i < this.to; i++) {
+      size += this.sources[i].estimateSize();
+      if (size < 0) {
+        // Overflow
+        return Long.MAX_VALUE;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public int characteristics() {
+    return this.characteristics;
+  }
+
+  /**
+   * @return The characteristics common to all of the remaining sources.
+   */
+  private int mergedCharacteristics() {
+    int characteristics = MERGED_CHARACTERISTICS;
+    for (int i = this.from; i < this.to; i++) {
+      characteristics &= this.sources[i].characteristics();
+    }
+    if ((characteristics & SIZED) != 0 && estimateSize() == Long.MAX_VALUE) {
+      characteristics &= ~(SIZED | SUBSIZED);
+    }
+    return characteristics;
+  }
+}
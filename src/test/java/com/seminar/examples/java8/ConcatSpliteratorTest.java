@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConcatSpliterator}.
+ */
+public class ConcatSpliteratorTest {
+
+  /**
+   * The N-way equivalent of {@link StreamApiExamplesTest#testConcatenateTwoLists()}.
+   */
+  @Test
+  public void testConcatenateLists() {
+    final List<String> strings1 = Arrays.asList("a", "b", "c");
+    final List<String> strings2 = Arrays.asList("d", "e", "f");
+    final List<String> strings3 = Arrays.asList("g");
+
+    final List<String> combinedStrings = ConcatSpliterator.concat(Arrays.asList(strings1, strings2, strings3))
+        .collect(Collectors.toList());
+
+    assertThat(combinedStrings, contains("a", "b", "c", "d", "e", "f", "g"));
+  }
+
+  @Test
+  public void testConcatenateManyListsInParallel() {
+    final List<List<Integer>> shards = new ArrayList<>();
+    final List<Integer> expected = new ArrayList<>();
+    for (int shard = 0; shard < 10_000; shard++) {
+      final List<Integer> list = new ArrayList<>();
+      for (int i = 0; i < shard % 7; i++) {
+        list.add(expected.size());
+        expected.add(expected.size());
+      }
+      shards.add(list);
+    }
+
+    assertThat(ConcatSpliterator.concat(shards).collect(Collectors.toList()), is(expected));
+    assertThat(ConcatSpliterator.concat(shards).parallel().collect(Collectors.toList()), is(expected));
+    assertThat(ConcatSpliterator.concat(shards).count(), is((long) expected.size()));
+  }
+
+  @Test
+  public void testSplitsAtCollectionBoundariesFirst() {
+    final List<Integer> large = IntStream.range(0, 90).boxed().collect(Collectors.toList());
+    final List<Integer> small1 = IntStream.range(90, 95).boxed().collect(Collectors.toList());
+    final List<Integer> small2 = IntStream.range(95, 100).boxed().collect(Collectors.toList());
+
+    final Spliterator<Integer> spliterator = ConcatSpliterator.concat(Arrays.asList(large, small1, small2))
+        .spliterator();
+    assertThat(spliterator.estimateSize(), is(100L));
+    assertThat(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED),
+        is(true));
+
+    final Spliterator<Integer> prefix = spliterator.trySplit();
+    assertThat(prefix.estimateSize(), is(90L));
+    assertThat(spliterator.estimateSize(), is(10L));
+    assertThat(spliterator.trySplit().estimateSize(), is(5L));
+    // A single remaining source is split by the source itself
+    assertThat(spliterator.trySplit().estimateSize(), is(2L));
+  }
+
+  @Test
+  public void testCharacteristicsAreThoseCommonToEverySource() {
+    final Spliterator<Integer> spliterator = ConcatSpliterator
+        .concat(Arrays.asList(Arrays.asList(1, 2), new HashSet<>(Arrays.asList(3)), Collections.<Integer>emptyList()))
+        .spliterator();
+
+    assertThat(spliterator.hasCharacteristics(Spliterator.SIZED), is(true));
+    assertThat(spliterator.hasCharacteristics(Spliterator.ORDERED), is(false));
+    assertThat(ConcatSpliterator.concat(Stream.of(1, 2).filter(i -> i > 1), Stream.of(3)).spliterator()
+        .hasCharacteristics(Spliterator.SIZED), is(false));
+  }
+
+  @Test
+  public void testCharacteristicsDoNotChangeAsSourcesAreConsumed() {
+    final Spliterator<Integer> spliterator = ConcatSpliterator
+        .concat(Arrays.asList(new HashSet<>(Arrays.asList(1)), Arrays.asList(2, 3)))
+        .spliterator();
+    final int characteristics = spliterator.characteristics();
+
+    // Consume the unordered first source, leaving only the ordered list
+    spliterator.tryAdvance(i -> { });
+    spliterator.tryAdvance(i -> { });
+
+    assertThat(spliterator.characteristics(), is(characteristics));
+    assertThat(spliterator.hasCharacteristics(Spliterator.ORDERED), is(false));
+  }
+
+  @Test
+  public void testConcatenateStreamsClosesEachStream() {
+    final AtomicInteger closed = new AtomicInteger();
+
+    try (Stream<String> stream = ConcatSpliterator.concat(Stream.of("a").onClose(closed::incrementAndGet),
+        Stream.of("b", "c").onClose(closed::incrementAndGet), Stream.<String>empty())) {
+      assertThat(stream.collect(Collectors.toList()), contains("a", "b", "c"));
+    }
+
+    assertThat(closed.get(), is(2));
+    assertThat(ConcatSpliterator.concat().count(), is(0L));
+  }
+}
@@ -17,12 +17,18 @@ package com.seminar.examples.java8;
 
 import static org.junit.Assert.assertThat;
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assume.assumeTrue;
 
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
 import org.junit.Test;
 
+import com.sun.management.ThreadMXBean;
+
 /**
  * Examples of the use of 'default' (aka 'virtual extension' or 'defender') methods in Java 8, implemented as a JUnit
  * test case.
@@ -92,28 +98,262 @@ public class DefaultMethodExamplesTest {
     assertThat(stringWriter.getBuffer().toString(), is("[INFO] " + logMessage));
   }
 
+  /**
+   * A test case illustrating the use of default methods which add overloads to an interface - here, for supplying a
+   * log message lazily, or as a template and args, which is only formatted if the message's level is enabled.
+   */
+  @Test
+  public void testLazyAndTemplateMessages() {
+    final StringWriter stringWriter = new StringWriter();
+    Logger myLogger = new MyLoggerImpl(stringWriter, Logger.Level.WARN);
+
+    myLogger.info(() -> "Not logged, or even created.");
+    myLogger.info("Not logged or formatted - {} of {}.", 1, 2);
+    myLogger.warn("Logged {} of {}.", 1, 2);
+    assertThat(stringWriter.getBuffer().toString(), is("[WARN] Logged 1 of 2."));
+
+    stringWriter.getBuffer().setLength(0);
+    myLogger.error(() -> "Logged lazily.");
+    assertThat(stringWriter.getBuffer().toString(), is("[ERROR] Logged lazily."));
+
+    assertThat(Logger.format("{}% of {}", 99.5), is("99.5% of {}"));
+    assertThat(Logger.format("{} of {} - {}", 1, 2), is("1 of 2 - {}"));
+    assertThat(Logger.format("No placeholder", 1), is("No placeholder"));
+  }
+
+  /**
+   * Checks that a message for a disabled level doesn't allocate, using the allocation counter of the current thread.
+   */
+  @Test
+  public void testDisabledLevelDoesNotAllocate() {
+    final java.lang.management.ThreadMXBean platformThreadMXBean = ManagementFactory.getThreadMXBean();
+    // Allocation counting is only available on JVMs which implement the com.sun.management extension
+    assumeTrue(platformThreadMXBean instanceof ThreadMXBean);
+    final ThreadMXBean threadMXBean = (ThreadMXBean) platformThreadMXBean;
+    assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+    final long threadId = Thread.currentThread().getId();
+    Logger myLogger = new MyLoggerImpl(new StringWriter(), Logger.Level.ERROR);
+    final int calls = 100_000;
+    // Warm up, including the allocation counter itself
+    logDisabled(myLogger, calls);
+    threadMXBean.getThreadAllocatedBytes(threadId);
+
+    final long before = threadMXBean.getThreadAllocatedBytes(threadId);
+    logDisabled(myLogger, calls);
+    final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+    // Allow for the few bytes allocated by reading the counter, but not a single byte per call
+    assertThat(allocated < calls, is(true));
+  }
+
+  private static void logDisabled(Logger logger, int calls) {
+    for (int i = 0; i < calls; i++) {
+      logger.info(() -> "Not logged.");
+      logger.info("Not logged - {}.", i);
+      logger.warn("Not logged - {} of {}.", i, calls);
+      logger.warn("Not logged - {}%.", i / 100.0);
+    }
+  }
+
   /**
    * Example of an interface which declares a couple of methods with default implementations.
+   * <p>
+   * It also illustrates default methods which add convenience overloads to an interface - messages supplied lazily, by
+   * a {@link Supplier}, or as a template and primitive args - which, combined with a level threshold, mean a message
+   * for a disabled level costs a single check, and creates no String, boxed arg or array.
    */
   interface Logger {
+    /**
+     * The level of a message, in ascending order of severity.
+     */
+    enum Level {
+      INFO("[INFO]"), WARN("[WARN]"), ERROR("[ERROR]");
+
+      private final String prefix;
+
+      Level(String prefix) {
+        this.prefix = prefix;
+      }
+
+      String prefix() {
+        return this.prefix;
+      }
+    }
+
     // The new 'default' keyword is used to denote a non-abstract method with a default implementation
     default void info(String message) {
-      Logger.log("[INFO]", message);
+      if (isEnabled(Level.INFO)) {
+        Logger.log(Level.INFO.prefix(), message);
+      }
     }
 
     // There can be more than one default method in an interface
     default void error(String message) {
-      Logger.log("[ERROR]", message);
+      if (isEnabled(Level.ERROR)) {
+        Logger.log(Level.ERROR.prefix(), message);
+      }
     }
 
     // Traditional declaration of an abstract method
     void warn(String message);
 
+    // A default method can be overridden, e.g. to only log warnings and errors
+    default Level threshold() {
+      return Level.INFO;
+    }
+
+    default boolean isEnabled(Level level) {
+      return level.compareTo(threshold()) >= 0;
+    }
+
+    // Default methods can be used to add overloads which delegate to the interface's other methods. A message which is
+    // expensive to create can be supplied lazily, so it's only created if its level is enabled
+    default void info(Supplier<String> message) {
+      if (isEnabled(Level.INFO)) {
+        info(message.get());
+      }
+    }
+
+    default void warn(Supplier<String> message) {
+      if (isEnabled(Level.WARN)) {
+        warn(message.get());
+      }
+    }
+
+    default void error(Supplier<String> message) {
+      if (isEnabled(Level.ERROR)) {
+        error(message.get());
+      }
+    }
+
+    // A message can also be supplied as a template, in which each "{}" is replaced by an arg. As the args are
+    // primitives, nothing is boxed (or allocated) unless the level is enabled
+    default void info(String template, long arg) {
+      if (isEnabled(Level.INFO)) {
+        info(Logger.format(template, arg));
+      }
+    }
+
+    default void info(String template, long arg1, long arg2) {
+      if (isEnabled(Level.INFO)) {
+        info(Logger.format(template, arg1, arg2));
+      }
+    }
+
+    default void info(String template, double arg) {
+      if (isEnabled(Level.INFO)) {
+        info(Logger.format(template, arg));
+      }
+    }
+
+    default void warn(String template, long arg) {
+      if (isEnabled(Level.WARN)) {
+        warn(Logger.format(template, arg));
+      }
+    }
+
+    default void warn(String template, long arg1, long arg2) {
+      if (isEnabled(Level.WARN)) {
+        warn(Logger.format(template, arg1, arg2));
+      }
+    }
+
+    default void warn(String template, double arg) {
+      if (isEnabled(Level.WARN)) {
+        warn(Logger.format(template, arg));
+      }
+    }
+
+    default void error(String template, long arg) {
+      if (isEnabled(Level.ERROR)) {
+        error(Logger.format(template, arg));
+      }
+    }
+
+    default void error(String template, long arg1, long arg2) {
+      if (isEnabled(Level.ERROR)) {
+        error(Logger.format(template, arg1, arg2));
+      }
+    }
+
+    default void error(String template, double arg) {
+      if (isEnabled(Level.ERROR)) {
+        error(Logger.format(template, arg));
+      }
+    }
+
     // As of Java 8, interfaces can also include public static methods, which removes the need to create companion
     // static classes for utility methods. (Note that these methods can only be public).
     static void log(String level, String message) {
       System.out.println(level + " " + message);
     }
+
+    /**
+     * @param template A message template, in which the first "{}" is replaced by the arg.
+     * @param arg The arg, appended without boxing.
+     * @return The formatted message.
+     */
+    static String format(String template, long arg) {
+      final StringBuilder message = new StringBuilder(template.length() + 20);
+      final int from = Logger.appendUntilPlaceholder(message, template, 0);
+      if (from < 0) {
+        return message.toString();
+      }
+      message.append(arg);
+      return message.append(template, from, template.length()).toString();
+    }
+
+    /**
+     * @param template A message template, in which the first and second "{}" are replaced by the args.
+     * @param arg1 The first arg, appended without boxing.
+     * @param arg2 The second arg, appended without boxing.
+     * @return The formatted message.
+     */
+    static String format(String template, long arg1, long arg2) {
+      final StringBuilder message = new StringBuilder(template.length() + 40);
+      int from = Logger.appendUntilPlaceholder(message, template, 0);
+      if (from < 0) {
+        return message.toString();
+      }
+      message.append(arg1);
+      from = Logger.appendUntilPlaceholder(message, template, from);
+      if (from < 0) {
+        return message.toString();
+      }
+      message.append(arg2);
+      return message.append(template, from, template.length()).toString();
+    }
+
+    /**
+     * @param template A message template, in which the first "{}" is replaced by the arg.
+     * @param arg The arg, appended without boxing.
+     * @return The formatted message.
+     */
+    static String format(String template, double arg) {
+      final StringBuilder message = new StringBuilder(template.length() + 24);
+      final int from = Logger.appendUntilPlaceholder(message, template, 0);
+      if (from < 0) {
+        return message.toString();
+      }
+      message.append(arg);
+      return message.append(template, from, template.length()).toString();
+    }
+
+    /**
+     * Appends the template, from the supplied index, up to its next "{}" placeholder.
+     *
+     * @return The index after the placeholder, or -1 if there's no placeholder, in which case the rest of the template
+     * has been appended.
+     */
+    static int appendUntilPlaceholder(StringBuilder message, String template, int from) {
+      final int placeholder = template.indexOf("{}", from);
+      if (placeholder < 0) {
+        message.append(template, from, template.length());
+        return -1;
+      }
+      message.append(template, from, placeholder);
+      return placeholder + 2;
+    }
   }
 
   /**
@@ -133,38 +373,50 @@ public class DefaultMethodExamplesTest {
    */
   class MyLoggerImpl implements Logger {
     private Writer writer;
+    private Level threshold;
 
     public MyLoggerImpl(Writer writer) {
+      this(writer, Level.INFO);
+    }
+
+    public MyLoggerImpl(Writer writer, Level threshold) {
       this.writer = writer;
+      this.threshold = threshold;
+    }
+
+    // Override default implementation in interface
+    @Override
+    public Level threshold() {
+      return this.threshold;
     }
 
     // Override default implementation in interface
     @Override
     public void info(String message) {
-      try {
-        this.writer.write("[INFO] " + message);
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
+      write(Level.INFO, message);
     }
 
     // Override default implementation in interface
     @Override
     public void error(String message) {
-      try {
-        this.writer.append("[ERROR] " + message);
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
+      write(Level.ERROR, message);
     }
 
     @Override
     public void warn(String message) {
+      write(Level.WARN, message);
+    }
+
+    // Write the level's prefix and the message separately, rather than concatenating them into a new String
+    private void write(Level level, String message) {
+      if (!isEnabled(level)) {
+        return;
+      }
       try {
-        this.writer.append("[WARN] " + message);
+        this.writer.append(level.prefix()).append(' ').append(message);
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe allocator of unique int ids, e.g. for {@link StreamApiExamplesTest.Student}, which scales with the no.
+ * of allocating threads.
+ * <p>
+ * Incrementing a single shared {@link AtomicInteger} per id is thread-safe, but when many threads allocate ids at a
+ * high rate the counter's cache line becomes heavily contended. Instead, each thread claims a block of consecutive ids
+ * from the shared counter, and then allocates ids from its own block without any synchronisation. The shared counter
+ * is only updated once per block.
+ * <p>
+ * Ids are unique, and increase monotonically within a thread. They are dense, with the exception of the unallocated
+ * remainder of each thread's current block - at most (block size - 1) ids per thread.
+ */
+final class IdAllocator {
+
+  private final AtomicInteger nextBlockStart;
+  private final int blockSize;
+  /** The highest id reserved by {@link #reserveThrough(int)}, or -1 if none. */
+  private final AtomicInteger reservedThrough = new AtomicInteger(-1);
+  private final ThreadLocal<Block> block = ThreadLocal.withInitial(Block::new);
+
+  /**
+   * @param firstId The first id to allocate, which must not be negative.
+   * @param blockSize The no. of ids claimed by a thread at a time.
+   */
+  IdAllocator(int firstId, int blockSize) {
+    if (firstId < 0 || blockSize < 1) {
+      throw new IllegalArgumentException("Invalid first id [" + firstId + "] or block size [" + blockSize + "]");
+    }
+    this.nextBlockStart = new AtomicInteger(firstId);
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * @return The next id allocated to the calling thread.
+   * @throws IllegalStateException If all the ids have been allocated.
+   */
+  int nextId() {
+    final Block b = this.block.get();
+    // A block claimed before a reservation may overlap it, in which case the rest of the block is abandoned
+    while (b.next == b.end || b.next <= this.reservedThrough.get()) {
+      final int start = this.nextBlockStart.getAndAdd(this.blockSize);
+      if (start < 0 || start > Integer.MAX_VALUE - this.blockSize) {
+        // Prevent further blocks being claimed after wrapping
+        this.nextBlockStart.set(Integer.MIN_VALUE);
+        throw new IllegalStateException("Ids exhausted");
+      }
+      b.next = start;
+      b.end = start + this.blockSize;
+    }
+    return b.next++;
+  }
+
+  /**
+   * Reserves all the ids up to and including the supplied id, so that they aren't allocated by subsequent calls to
+   * {@link #nextId()}, e.g. because they've been assigned to objects restored from a snapshot. Reserving an id which
+   * is already reserved doesn't update any shared state.
+   * <p>
+   * Ids which have already been allocated by {@link #nextId()} can't be detected, so reserving them doesn't prevent
+   * duplicates. Ids should be reserved before any are allocated, e.g. by restoring a snapshot at startup.
+   *
+   * @param id The highest id to reserve.
+   */
+  void reserveThrough(int id) {
+    if (id <= this.reservedThrough.get()) {
+      return;
+    }
+    this.reservedThrough.accumulateAndGet(id, Math::max);
+    // Blocks are claimed after the reserved ids, unless the ids are already exhausted
+    this.nextBlockStart.updateAndGet(start -> start < 0 ? start : id == Integer.MAX_VALUE ? Integer.MIN_VALUE
+        : Math.max(start, id + 1));
+  }
+
+  /**
+   * A thread's current block of ids.
+   */
+  private static final class Block {
+    private int next;
+    private int end;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the throughput of allocating ids from all available threads, using a single shared
+ * {@link AtomicInteger}, compared with an {@link IdAllocator}. Run with {@code -t 1}, {@code -t 2}, ... to measure how
+ * throughput scales with the no. of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class IdAllocatorBenchmark {
+
+  @Param({ "1024" })
+  int blockSize;
+
+  private AtomicInteger counter;
+  private IdAllocator allocator;
+
+  // Reset per iteration so that ids can't be exhausted in long runs
+  @Setup(Level.Iteration)
+  public void setUp() {
+    this.counter = new AtomicInteger();
+    this.allocator = new IdAllocator(0, this.blockSize);
+  }
+
+  @Benchmark
+  public int atomicInteger() {
+    return this.counter.incrementAndGet();
+  }
+
+  @Benchmark
+  public int idAllocator() {
+    return this.allocator.nextId();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link IdAllocator}, including a concurrency stress test.
+ */
+public class IdAllocatorTest {
+
+  @Test
+  public void testIdsIncreaseWithinAThread() {
+    final IdAllocator allocator = new IdAllocator(1, 4);
+
+    for (int expectedId = 1; expectedId <= 10; expectedId++) {
+      assertThat(allocator.nextId(), is(expectedId));
+    }
+  }
+
+  @Test
+  public void testConcurrentIdsAreUniqueAndDense() throws Exception {
+    final int threads = 8;
+    final int idsPerThread = 250_000;
+    final int blockSize = 1024;
+    final IdAllocator allocator = new IdAllocator(1, blockSize);
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<int[]>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        results.add(executor.submit(() -> {
+          final int[] ids = new int[idsPerThread];
+          start.await();
+          for (int i = 0; i < idsPerThread; i++) {
+            ids[i] = allocator.nextId();
+          }
+          return ids;
+        }));
+      }
+      start.countDown();
+
+      final BitSet allocated = new BitSet();
+      for (Future<int[]> result : results) {
+        for (int id : result.get(1, TimeUnit.MINUTES)) {
+          assertThat("Duplicate id " + id, allocated.get(id), is(false));
+          allocated.set(id);
+        }
+      }
+      assertThat(allocated.cardinality(), is(threads * idsPerThread));
+      // The only gaps are the unallocated remainders of each thread's last block
+      assertThat(allocated.length() - 1, lessThan(threads * idsPerThread + threads * blockSize + 1));
+      assertThat(allocated.nextSetBit(0), is(1));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReservedIdsAreNotAllocated() {
+    final IdAllocator allocator = new IdAllocator(1, 4);
+    assertThat(allocator.nextId(), is(1));
+
+    // Overlaps the calling thread's current block
+    allocator.reserveThrough(2);
+    assertThat(allocator.nextId(), is(5));
+
+    allocator.reserveThrough(100);
+    allocator.reserveThrough(50);
+    assertThat(allocator.nextId(), is(101));
+  }
+
+  @Test
+  public void testIdsMustBeReservedBeforeTheyAreAllocated() {
+    // Reserving ids before any are allocated, e.g. restoring a snapshot at startup, keeps every id unique
+    final IdAllocator restoredFirst = new IdAllocator(1, 4);
+    restoredFirst.reserveThrough(3);
+    assertThat(restoredFirst.nextId(), is(4));
+
+    // Ids which have already been allocated can't be detected, so reserving them afterwards doesn't prevent duplicates
+    final IdAllocator allocatedFirst = new IdAllocator(1, 4);
+    assertThat(allocatedFirst.nextId(), is(1));
+    allocatedFirst.reserveThrough(1);
+    assertThat(allocatedFirst.nextId(), is(2));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testIdsExhausted() {
+    final IdAllocator allocator = new IdAllocator(Integer.MAX_VALUE - 10, 8);
+    for (int i = 0; i < 20; i++) {
+      allocator.nextId();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBlockSize() {
+    new IdAllocator(1, 0);
+  }
+}
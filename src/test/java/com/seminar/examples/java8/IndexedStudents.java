@@ -0,0 +1,413 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * An immutable, indexed collection of students, which evaluates filters by first using indexes to select candidate
+ * students, rather than scanning every student and decoding its fields, as {@code stream().filter(predicate)} does
+ * (see {@link StreamApiExamplesTest#testFilter()}).
+ * <p>
+ * The collection has sorted range indexes on year of birth, graduation year and fee, and a bitmap index (a
+ * {@link BitSet} of rows) per country. Filters are expressed using a small DSL of {@link Condition}s, e.g.
+ * {@code bornAfter(1975).and(country("Wales")).and(matching(s -> s.getEmail().endsWith(".net")))}. The conditions
+ * which have an index are pushed down to it - the most selective of them is used to select the candidate rows, and the
+ * others are tested against the indexed (primitive) column values of each candidate. Only then are any per-element
+ * predicates applied, to the candidates which remain.
+ * <p>
+ * The indexes are built when the collection is created, so subsequent changes to the students (e.g. their graduation
+ * date) aren't reflected.
+ */
+final class IndexedStudents {
+
+  private static final int NULL_YEAR = Integer.MIN_VALUE;
+
+  private final List<Student> students;
+  private final int[] dobYears;
+  private final int[] graduationYears;
+  private final long[] feeCents;
+  private final boolean[] hasFee;
+  private final RangeIndex dobYearIndex;
+  private final RangeIndex graduationYearIndex;
+  private final RangeIndex feeIndex;
+  private final Map<String, BitSet> countryIndex = new HashMap<>();
+
+  private IndexedStudents(List<Student> students) {
+    this.students = Collections.unmodifiableList(new ArrayList<>(students));
+    final int n = this.students.size();
+    this.dobYears = new int[n];
+    this.graduationYears = new int[n];
+    this.feeCents = new long[n];
+    this.hasFee = new boolean[n];
+    for (int row = 0; row < n; row++) {
+      final Student s = this.students.get(row);
+      this.dobYears[row] = s.getDob() == null ? NULL_YEAR : s.getDob().getYear();
+      this.graduationYears[row] = s.getGraduationDate() == null ? NULL_YEAR : s.getGraduationDate().getYear();
+      if (s.getFee() != null) {
+        this.feeCents[row] = s.getFee().setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        this.hasFee[row] = true;
+      }
+      if (s.getCountry() != null) {
+        this.countryIndex.computeIfAbsent(s.getCountry(), c -> new BitSet(n)).set(row);
+      }
+    }
+    this.dobYearIndex = new RangeIndex(n, row -> this.dobYears[row] != NULL_YEAR, row -> this.dobYears[row]);
+    this.graduationYearIndex = new RangeIndex(n, row -> this.graduationYears[row] != NULL_YEAR,
+        row -> this.graduationYears[row]);
+    this.feeIndex = new RangeIndex(n, row -> this.hasFee[row], row -> this.feeCents[row]);
+  }
+
+  /**
+   * @param students The students to index.
+   * @return A new indexed collection of the supplied students.
+   * @throws ArithmeticException If a student's fee isn't a whole no. of cents.
+   */
+  static IndexedStudents of(List<Student> students) {
+    return new IndexedStudents(students);
+  }
+
+  /**
+   * @return The no. of students.
+   */
+  int size() {
+    return this.students.size();
+  }
+
+  /**
+   * @param condition The condition.
+   * @return An ordered stream of the students which match the supplied condition.
+   */
+  Stream<Student> filter(Condition condition) {
+    return rows(condition).mapToObj(this.students::get);
+  }
+
+  /**
+   * @param condition The condition.
+   * @return The no. of students which match the supplied condition. If it has no per-element predicates, no student
+   * is accessed.
+   */
+  long count(Condition condition) {
+    return rows(condition).count();
+  }
+
+  private IntStream rows(Condition condition) {
+    IntStream rows;
+    final List<IndexTerm> terms = new ArrayList<>(condition.terms);
+    if (terms.isEmpty()) {
+      rows = IntStream.range(0, size());
+    } else {
+      // Select candidates using the most selective index, and test the rest of the terms against their columns
+      int mostSelective = 0;
+      int leastEstimate = Integer.MAX_VALUE;
+      for (int i = 0; i < terms.size(); i++) {
+        final int estimate = terms.get(i).estimate(this);
+        if (estimate < leastEstimate) {
+          mostSelective = i;
+          leastEstimate = estimate;
+        }
+      }
+      rows = terms.remove(mostSelective).rows(this);
+      for (IndexTerm term : terms) {
+        rows = rows.filter(row -> term.test(this, row));
+      }
+    }
+    for (Predicate<? super Student> predicate : condition.predicates) {
+      rows = rows.filter(row -> predicate.test(this.students.get(row)));
+    }
+    return rows;
+  }
+
+  // ------------------------------------------------------------------------------------------------- Condition DSL
+
+  /**
+   * @param fromYear The inclusive lower bound.
+   * @param toYear The inclusive upper bound.
+   * @return A condition which matches students born in the supplied range of years.
+   */
+  static Condition bornBetween(int fromYear, int toYear) {
+    return new Condition(new YearTerm(fromYear, toYear, false));
+  }
+
+  /**
+   * @param year The year.
+   * @return A condition which matches students born after the supplied year, equivalent to
+   * {@code s -> s.getDob().getYear() > year}.
+   */
+  static Condition bornAfter(int year) {
+    return year == Integer.MAX_VALUE ? bornBetween(1, 0) : bornBetween(year + 1, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param fromYear The inclusive lower bound.
+   * @param toYear The inclusive upper bound.
+   * @return A condition which matches students who graduated in the supplied range of years.
+   */
+  static Condition graduatedBetween(int fromYear, int toYear) {
+    return new Condition(new YearTerm(fromYear, toYear, true));
+  }
+
+  /**
+   * @param min The inclusive lower bound.
+   * @param max The inclusive upper bound.
+   * @return A condition which matches students whose fee is in the supplied range.
+   */
+  static Condition feeBetween(BigDecimal min, BigDecimal max) {
+    return new Condition(new FeeTerm(min.setScale(2, RoundingMode.CEILING).unscaledValue().longValueExact(),
+        max.setScale(2, RoundingMode.FLOOR).unscaledValue().longValueExact()));
+  }
+
+  /**
+   * @param country The name of a country.
+   * @return A condition which matches students in the supplied country.
+   */
+  static Condition country(String country) {
+    return new Condition(new CountryTerm(country));
+  }
+
+  /**
+   * @param predicate A predicate.
+   * @return A condition which matches students which match the supplied predicate, which can't use an index, so is
+   * only applied to the students which match all of the other conditions it's combined with.
+   */
+  static Condition matching(Predicate<? super Student> predicate) {
+    return new Condition(Collections.emptyList(), Collections.singletonList(predicate));
+  }
+
+  /**
+   * A filter condition - a conjunction of index terms and per-element predicates.
+   */
+  static final class Condition {
+    private final List<IndexTerm> terms;
+    private final List<Predicate<? super Student>> predicates;
+
+    private Condition(IndexTerm term) {
+      this(Collections.singletonList(term), Collections.emptyList());
+    }
+
+    private Condition(List<IndexTerm> terms, List<Predicate<? super Student>> predicates) {
+      this.terms = terms;
+      this.predicates = predicates;
+    }
+
+    /**
+     * @param other Another condition.
+     * @return A condition which matches students which match both this and the other condition.
+     */
+    Condition and(Condition other) {
+      final List<IndexTerm> terms = new ArrayList<>(this.terms);
+      terms.addAll(other.terms);
+      final List<Predicate<? super Student>> predicates = new ArrayList<>(this.predicates);
+      predicates.addAll(other.predicates);
+      return new Condition(terms, predicates);
+    }
+  }
+
+  /**
+   * A condition which can be evaluated using an index.
+   */
+  private interface IndexTerm {
+    /**
+     * @return The no. of rows which match, or an upper bound, without accessing them.
+     */
+    int estimate(IndexedStudents students);
+
+    /**
+     * @return The rows which match, from the index, in ascending order.
+     */
+    IntStream rows(IndexedStudents students);
+
+    /**
+     * @return True if the row matches, using the indexed column values.
+     */
+    boolean test(IndexedStudents students, int row);
+  }
+
+  private static final class YearTerm implements IndexTerm {
+    private final int fromYear;
+    private final int toYear;
+    private final boolean graduation;
+
+    YearTerm(int fromYear, int toYear, boolean graduation) {
+      this.fromYear = fromYear;
+      this.toYear = toYear;
+      this.graduation = graduation;
+    }
+
+    private RangeIndex index(IndexedStudents students) {
+      return this.graduation ? students.graduationYearIndex : students.dobYearIndex;
+    }
+
+    @Override
+    public int estimate(IndexedStudents students) {
+      return index(students).count(this.fromYear, this.toYear);
+    }
+
+    @Override
+    public IntStream rows(IndexedStudents students) {
+      return index(students).rows(this.fromYear, this.toYear);
+    }
+
+    @Override
+    public boolean test(IndexedStudents students, int row) {
+      final int year = this.graduation ? students.graduationYears[row] : students.dobYears[row];
+      return year != NULL_YEAR && year >= this.fromYear && year <= this.toYear;
+    }
+  }
+
+  private static final class FeeTerm implements IndexTerm {
+    private final long minCents;
+    private final long maxCents;
+
+    FeeTerm(long minCents, long maxCents) {
+      this.minCents = minCents;
+      this.maxCents = maxCents;
+    }
+
+    @Override
+    public int estimate(IndexedStudents students) {
+      return students.feeIndex.count(this.minCents, this.maxCents);
+    }
+
+    @Override
+    public IntStream rows(IndexedStudents students) {
+      return students.feeIndex.rows(this.minCents, this.maxCents);
+    }
+
+    @Override
+    public boolean test(IndexedStudents students, int row) {
+      return students.hasFee[row] && students.feeCents[row] >= this.minCents
+          && students.feeCents[row] <= this.maxCents;
+    }
+  }
+
+  private static final class CountryTerm implements IndexTerm {
+    private final String country;
+
+    CountryTerm(String country) {
+      this.country = country;
+    }
+
+    private BitSet bitmap(IndexedStudents students) {
+      final BitSet bitmap = students.countryIndex.get(this.country);
+      return bitmap == null ? new BitSet() : bitmap;
+    }
+
+    @Override
+    public int estimate(IndexedStudents students) {
+      return bitmap(students).cardinality();
+    }
+
+    @Override
+    public IntStream rows(IndexedStudents students) {
+      return bitmap(students).stream();
+    }
+
+    @Override
+    public boolean test(IndexedStudents students, int row) {
+      return bitmap(students).get(row);
+    }
+  }
+
+  /**
+   * A sorted index of the rows which have a (long) key - the keys in ascending order, and the row of each key.
+   */
+  private static final class RangeIndex {
+    private final int size;
+    private final long[] keys;
+    private final int[] rows;
+
+    RangeIndex(int n, IntPredicate hasKey, IntToLongFunction key) {
+      this.size = n;
+      final int[] keyedRows = IntStream.range(0, n).filter(hasKey).toArray();
+      final long[] unsortedKeys = Arrays.stream(keyedRows).mapToLong(key).toArray();
+      final int[] order = KeySort.sortedIndexes(unsortedKeys, false);
+      this.rows = new int[order.length];
+      this.keys = new long[order.length];
+      for (int i = 0; i < order.length; i++) {
+        this.rows[i] = keyedRows[order[i]];
+        this.keys[i] = unsortedKeys[order[i]];
+      }
+    }
+
+    int count(long from, long to) {
+      return Math.max(0, upperBound(to) - lowerBound(from));
+    }
+
+    /**
+     * @return The rows with a key in the supplied range, in ascending order, in time which depends on the no. of rows
+     * in the range (m), not the total no. of rows - O(log n + m log m) at worst.
+     */
+    IntStream rows(long from, long to) {
+      final int start = lowerBound(from);
+      final int end = upperBound(to);
+      if (start >= end) {
+        return IntStream.empty();
+      }
+      // The slice of rows in the range is in key order, so is put in row order - a dense slice by marking its rows in
+      // a bitmap, which has no more words than the slice has rows, and a sparse slice by sorting a copy of it
+      if (end - start >= this.size >>> 6) {
+        final BitSet bitmap = new BitSet(this.size);
+        for (int i = start; i < end; i++) {
+          bitmap.set(this.rows[i]);
+        }
+        return bitmap.stream();
+      }
+      final int[] slice = Arrays.copyOfRange(this.rows, start, end);
+      Arrays.sort(slice);
+      return IntStream.of(slice);
+    }
+
+    /**
+     * @return The index of the first key which is greater than the supplied key.
+     */
+    private int upperBound(long key) {
+      return key == Long.MAX_VALUE ? this.keys.length : lowerBound(key + 1);
+    }
+
+    /**
+     * @return The index of the first key which is greater than or equal to the supplied key.
+     */
+    private int lowerBound(long key) {
+      int low = 0;
+      int high = this.keys.length;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (this.keys[mid] < key) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
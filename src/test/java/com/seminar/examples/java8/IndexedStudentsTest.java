@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static com.seminar.examples.java8.IndexedStudents.bornAfter;
+import static com.seminar.examples.java8.IndexedStudents.bornBetween;
+import static com.seminar.examples.java8.IndexedStudents.country;
+import static com.seminar.examples.java8.IndexedStudents.feeBetween;
+import static com.seminar.examples.java8.IndexedStudents.graduatedBetween;
+import static com.seminar.examples.java8.IndexedStudents.matching;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Tests for {@link IndexedStudents}, which check that each filter returns the same students as an equivalent
+ * predicate.
+ */
+public class IndexedStudentsTest {
+
+  private static final String[] COUNTRIES = { "Wales", "Scotland", "England", "Ireland" };
+
+  private static List<Student> students() {
+    final List<Student> students = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      final Student student = new Student(LocalDate.ofEpochDay((i * 7919L) % 11_000),
+          "s" + i + (i % 3 == 0 ? "@test.net" : "@test.org"), BigDecimal.valueOf(i % 1000 * 137, 2));
+      if (i % 5 != 0) {
+        student.setCountry(COUNTRIES[i % COUNTRIES.length]);
+      }
+      if (i % 2 == 0) {
+        student.setGraduationDate(student.getDob().plusYears(21 + i % 3));
+      }
+      students.add(student);
+    }
+    return students;
+  }
+
+  private static void assertFilter(List<Student> students, IndexedStudents.Condition condition,
+      Predicate<Student> predicate) {
+    final List<Student> expected = students.stream().filter(predicate).collect(Collectors.toList());
+    assertThat(IndexedStudents.of(students).filter(condition).collect(Collectors.toList()), is(expected));
+  }
+
+  @Test
+  public void testRangeConditions() {
+    final List<Student> students = students();
+
+    assertFilter(students, bornAfter(1975), s -> s.getDob().getYear() > 1975);
+    assertFilter(students, bornBetween(1971, 1972), s -> s.getDob().getYear() >= 1971 && s.getDob().getYear() <= 1972);
+    assertFilter(students, graduatedBetween(1995, 1995),
+        s -> s.getGraduationDate() != null && s.getGraduationDate().getYear() == 1995);
+    assertFilter(students, feeBetween(new BigDecimal("100.001"), new BigDecimal("200")),
+        s -> s.getFee().compareTo(new BigDecimal("100.001")) >= 0 && s.getFee().compareTo(new BigDecimal("200")) <= 0);
+    // Few enough students that their rows are sorted, rather than marked in a bitmap
+    assertFilter(students, feeBetween(new BigDecimal("13.70"), new BigDecimal("13.70")),
+        s -> s.getFee().compareTo(new BigDecimal("13.70")) == 0);
+  }
+
+  @Test
+  public void testCombinedConditions() {
+    final List<Student> students = students();
+
+    assertFilter(students, bornAfter(1975).and(country("Wales")).and(matching(s -> s.getEmail().endsWith(".net"))),
+        s -> s.getDob().getYear() > 1975 && "Wales".equals(s.getCountry()) && s.getEmail().endsWith(".net"));
+    assertFilter(students, country("Atlantis").and(bornAfter(1970)), s -> false);
+    assertFilter(students, matching(s -> s.getId() % 7 == 0), s -> s.getId() % 7 == 0);
+  }
+
+  @Test
+  public void testPredicatesOnlyAppliedToIndexedCandidates() {
+    final IndexedStudents indexed = IndexedStudents.of(students());
+    final LongAdder tests = new LongAdder();
+
+    final long count = indexed.count(bornBetween(1971, 1971).and(country("Scotland")).and(matching(s -> {
+      tests.increment();
+      return true;
+    })));
+
+    assertThat(tests.sum(), is(count));
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Alternatives to {@link Stream#distinct()} for elements which are identified by an int key, such as a
+ * {@link StreamApiExamplesTest.Student}'s id, which don't keep a {@code HashSet} of every (boxed and hashed) element
+ * seen (see {@link StreamApiExamplesTest#testDistinct()}).
+ * <p>
+ * {@link #distinctByInt(ToIntFunction)} records each key seen as a bit in a concurrent bitset, which is allocated in
+ * chunks as keys are seen, so for dense keys such as ids it uses ~1 bit per key. It's exact, but requires non-negative
+ * keys. {@link #approximateDistinctByInt(ToIntFunction, long, double)} records keys in a fixed-size Bloom filter,
+ * which supports any key, using a no. of bits per key determined by the acceptable false positive probability, at the
+ * cost of occasionally dropping an element which hasn't been seen before.
+ * <p>
+ * Both are stateful predicates, for use with {@link Stream#filter(Predicate)}, which are safe to use with parallel
+ * streams. Unlike {@link Stream#distinct()}, they don't preserve the first of a set of duplicates in encounter order
+ * when used with a parallel stream - which of the duplicates is kept is unspecified - so they don't need to buffer
+ * elements. A predicate can only be used for a single stream.
+ */
+final class IntDistinct {
+
+  private IntDistinct() {
+  }
+
+  /**
+   * @param stream The stream of elements.
+   * @param keyFunction A function which returns an element's non-negative key, e.g. {@code Student::getId}.
+   * @param <T> The type of element.
+   * @return A stream of the elements of the supplied stream with distinct keys.
+   */
+  static <T> Stream<T> distinct(Stream<T> stream, ToIntFunction<? super T> keyFunction) {
+    return stream.filter(distinctByInt(keyFunction));
+  }
+
+  /**
+   * @param keyFunction A function which returns an element's non-negative key, e.g. {@code Student::getId}.
+   * @param <T> The type of element.
+   * @return A thread-safe predicate which returns true the first time it's supplied an element with a given key.
+   * @throws IllegalArgumentException (When tested) if an element's key is negative.
+   */
+  static <T> Predicate<T> distinctByInt(ToIntFunction<? super T> keyFunction) {
+    final ConcurrentBitSet seen = new ConcurrentBitSet();
+    return t -> seen.add(keyFunction.applyAsInt(t));
+  }
+
+  /**
+   * @param keyFunction A function which returns an element's key.
+   * @param expectedKeys The expected no. of distinct keys, used to size the Bloom filter.
+   * @param falsePositiveProbability The acceptable probability (once the expected no. of keys have been seen) that an
+   * element with an unseen key is treated as a duplicate, e.g. 0.01.
+   * @param <T> The type of element.
+   * @return A thread-safe predicate which returns true the first time it's supplied an element with a given key, and
+   * false if the key has (probably) been seen before. If two threads concurrently test elements with the same unseen
+   * key, both may (rarely) return true.
+   */
+  static <T> Predicate<T> approximateDistinctByInt(ToIntFunction<? super T> keyFunction, long expectedKeys,
+      double falsePositiveProbability) {
+    final BloomFilter seen = new BloomFilter(expectedKeys, falsePositiveProbability);
+    return t -> seen.add(keyFunction.applyAsInt(t));
+  }
+
+  /**
+   * A thread-safe set of non-negative ints, held as a bitset of 2^18 bit chunks, which are allocated on first use.
+   */
+  private static final class ConcurrentBitSet {
+    private static final int CHUNK_SHIFT = 18;
+    private static final int CHUNK_WORDS = (1 << CHUNK_SHIFT) / Long.SIZE;
+
+    private final AtomicReferenceArray<AtomicLongArray> chunks =
+        new AtomicReferenceArray<>(1 << (Integer.SIZE - 1 - CHUNK_SHIFT));
+
+    /**
+     * @param bit The non-negative int to add.
+     * @return True if the int wasn't already in the set.
+     */
+    boolean add(int bit) {
+      if (bit < 0) {
+        throw new IllegalArgumentException("Negative key [" + bit + "]");
+      }
+      final AtomicLongArray words = chunk(bit >>> CHUNK_SHIFT);
+      final int word = (bit >>> 6) & (CHUNK_WORDS - 1);
+      final long mask = 1L << bit;
+      long bits = words.get(word);
+      while ((bits & mask) == 0) {
+        if (words.compareAndSet(word, bits, bits | mask)) {
+          return true;
+        }
+        bits = words.get(word);
+      }
+      return false;
+    }
+
+    private AtomicLongArray chunk(int index) {
+      final AtomicLongArray chunk = this.chunks.get(index);
+      if (chunk != null) {
+        return chunk;
+      }
+      this.chunks.compareAndSet(index, null, new AtomicLongArray(CHUNK_WORDS));
+      return this.chunks.get(index);
+    }
+  }
+
+  /**
+   * A thread-safe Bloom filter of ints, which sets k bits per int, derived from two hashes of the int (double hashing).
+   */
+  private static final class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    BloomFilter(long expectedKeys, double falsePositiveProbability) {
+      if (expectedKeys < 1 || !(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+        throw new IllegalArgumentException("Invalid expected keys [" + expectedKeys + "] or false positive probability ["
+            + falsePositiveProbability + "]");
+      }
+      // Optimal no. of bits m = -n ln(p) / (ln 2)^2, and of hashes k = (m / n) ln 2
+      final double ln2 = Math.log(2);
+      final long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveProbability) / (ln2 * ln2));
+      final int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + Long.SIZE - 1) / Long.SIZE);
+      this.words = new AtomicLongArray(words);
+      this.bits = (long) words * Long.SIZE;
+      this.hashes = Math.max(1, (int) Math.round((double) this.bits / expectedKeys * ln2));
+    }
+
+    /**
+     * @return True if any of the int's bits weren't already set, i.e. it definitely hadn't been added before.
+     */
+    boolean add(int key) {
+      final long hash = mix(key);
+      final int hash1 = (int) hash;
+      final int hash2 = (int) (hash >>> 32);
+      boolean added = false;
+      for (int i = 0; i < this.hashes; i++) {
+        final long bit = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % this.bits;
+        added |= setBit(bit);
+      }
+      return added;
+    }
+
+    private boolean setBit(long bit) {
+      final int word = (int) (bit >>> 6);
+      final long mask = 1L << bit;
+      long bits = this.words.get(word);
+      while ((bits & mask) == 0) {
+        if (this.words.compareAndSet(word, bits, bits | mask)) {
+          return true;
+        }
+        bits = this.words.get(word);
+      }
+      return false;
+    }
+
+    /**
+     * The finalisation step of the SplitMix64 generator, which spreads the bits of consecutive ints across the long.
+     */
+    private static long mix(int key) {
+      long z = key * 0x9E3779B97F4A7C15L;
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link IntDistinct}.
+ */
+public class IntDistinctTest {
+
+  @Test
+  public void testDistinctByInt() {
+    // Each key from 0 to 999,999 occurs 3 times, including keys spanning several chunks of the bitset
+    final int[] distinct = IntStream.range(0, 3_000_000).map(i -> (i * 7) % 1_000_000).boxed()
+        .filter(IntDistinct.distinctByInt(Integer::intValue)).mapToInt(Integer::intValue).sorted().toArray();
+
+    assertThat(distinct, is(IntStream.range(0, 1_000_000).toArray()));
+  }
+
+  @Test
+  public void testDistinctByIntInParallel() {
+    final long count = IntDistinct.distinct(IntStream.range(0, 4_000_000).parallel().map(i -> i % 1_000_003).boxed(),
+        Integer::intValue).count();
+
+    assertThat(count, is(1_000_003L));
+  }
+
+  @Test
+  public void testLargeKeys() {
+    final Predicate<Integer> distinct = IntDistinct.distinctByInt(Integer::intValue);
+
+    assertThat(distinct.test(Integer.MAX_VALUE), is(true));
+    assertThat(distinct.test(Integer.MAX_VALUE), is(false));
+    assertThat(distinct.test(0), is(true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeKey() {
+    IntDistinct.<Integer>distinctByInt(Integer::intValue).test(-1);
+  }
+
+  @Test
+  public void testApproximateDistinctByInt() {
+    final int keys = 100_000;
+    final Predicate<Integer> distinct = IntDistinct.approximateDistinctByInt(Integer::intValue, keys, 0.01);
+
+    final long passed = IntStream.range(0, keys).map(i -> i * 31 - 50_000).boxed().filter(distinct).count();
+    // No key has been seen before, but a few are false positives
+    assertThat(passed, greaterThan((long) (keys * 0.98)));
+    // Every key has been seen before - a Bloom filter never has false negatives
+    assertThat(IntStream.range(0, keys).map(i -> i * 31 - 50_000).boxed().filter(distinct).count(), is(0L));
+  }
+}
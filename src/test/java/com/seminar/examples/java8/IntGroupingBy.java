@@ -0,0 +1,278 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * A group-by operation for elements of a {@link List} which are classified by a primitive int key, e.g. a
+ * {@link java.time.LocalDate} converted to its epoch day, as an alternative to
+ * {@link java.util.stream.Collectors#groupingBy(java.util.function.Function)}.
+ * <p>
+ * Collectors.groupingBy() boxes (or otherwise creates) a key object per element to look up its group, and creates an
+ * ArrayList of elements per group. Instead, the groups are held in an open-addressing int to bucket hash table, and
+ * each bucket is an int array of the (ascending) indexes of its elements in the source list.
+ * <p>
+ * The grouping is computed using an {@link IntStream} of the source list's indexes, either sequentially, or in
+ * parallel, in which case each fork-join leaf groups its range of indexes into its own table and the tables are then
+ * merged.
+ */
+final class IntGroupingBy {
+
+  private IntGroupingBy() {
+  }
+
+  /**
+   * @param source The elements to group. Should support fast random access.
+   * @param keyFunction A function which returns an element's int group key.
+   * @param <T> The type of element.
+   * @return The groups, computed sequentially.
+   */
+  static <T> IntGroups<T> groupingByInt(List<T> source, ToIntFunction<? super T> keyFunction) {
+    return groupingByInt(source, keyFunction, false);
+  }
+
+  /**
+   * @param source The elements to group. Should support fast random access.
+   * @param keyFunction A function which returns an element's int group key. Must be safe to call concurrently.
+   * @param <T> The type of element.
+   * @return The groups, computed in parallel.
+   */
+  static <T> IntGroups<T> parallelGroupingByInt(List<T> source, ToIntFunction<? super T> keyFunction) {
+    return groupingByInt(source, keyFunction, true);
+  }
+
+  private static <T> IntGroups<T> groupingByInt(List<T> source, ToIntFunction<? super T> keyFunction,
+      boolean parallel) {
+    final List<T> list = source instanceof RandomAccess ? source : new ArrayList<>(source);
+    final IntStream indexes = IntStream.range(0, list.size());
+    final IntBucketMap buckets = (parallel ? indexes.parallel() : indexes).collect(IntBucketMap::new,
+        (map, i) -> map.add(keyFunction.applyAsInt(list.get(i)), i), IntBucketMap::merge);
+    return new IntGroups<>(list, buckets);
+  }
+
+  /**
+   * The result of grouping a list by an int key.
+   *
+   * @param <T> The type of element.
+   */
+  static final class IntGroups<T> {
+    private final List<T> source;
+    private final IntBucketMap buckets;
+
+    private IntGroups(List<T> source, IntBucketMap buckets) {
+      this.source = source;
+      this.buckets = buckets;
+    }
+
+    /**
+     * @return The no. of groups (distinct keys).
+     */
+    int size() {
+      return this.buckets.size;
+    }
+
+    /**
+     * @param key A group key.
+     * @return The ascending indexes in the source list of the elements with the supplied key, or an empty array if
+     * there are none.
+     */
+    int[] indexes(int key) {
+      final int bucket = this.buckets.find(key);
+      return bucket < 0 ? new int[0]
+          : Arrays.copyOf(this.buckets.bucketIndexes[bucket], this.buckets.bucketSizes[bucket]);
+    }
+
+    /**
+     * @param key A group key.
+     * @return An unmodifiable view of the elements with the supplied key, in encounter order.
+     */
+    List<T> group(int key) {
+      final int bucket = this.buckets.find(key);
+      return bucket < 0 ? new ElementList<>(this.source, new int[0], 0) : groupList(bucket);
+    }
+
+    /**
+     * Adapts the groups to a Map, as would be returned by {@link java.util.stream.Collectors#groupingBy}. Only one
+     * key object is created per group. The values of the map are unmodifiable views over the source list.
+     *
+     * @param keyDecoder A function which converts an int key back to a key object, e.g. {@code LocalDate::ofEpochDay}.
+     * @param <K> The type of key.
+     * @return A map of the key of each group to its elements.
+     */
+    <K> Map<K, List<T>> asMap(IntFunction<? extends K> keyDecoder) {
+      final Map<K, List<T>> map = new HashMap<>((int) (this.buckets.size / 0.75f) + 1);
+      for (int bucket = 0; bucket < this.buckets.size; bucket++) {
+        map.put(keyDecoder.apply(this.buckets.bucketKeys[bucket]), groupList(bucket));
+      }
+      return map;
+    }
+
+    private List<T> groupList(int bucket) {
+      return new ElementList<>(this.source, this.buckets.bucketIndexes[bucket], this.buckets.bucketSizes[bucket]);
+    }
+  }
+
+  /**
+   * An unmodifiable list view of the elements at a set of indexes of another list.
+   */
+  private static final class ElementList<T> extends AbstractList<T> implements RandomAccess {
+    private final List<T> source;
+    private final int[] indexes;
+    private final int size;
+
+    ElementList(List<T> source, int[] indexes, int size) {
+      this.source = source;
+      this.indexes = indexes;
+      this.size = size;
+    }
+
+    @Override
+    public T get(int index) {
+      if (index >= this.size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+      }
+      return this.source.get(this.indexes[index]);
+    }
+
+    @Override
+    public int size() {
+      return this.size;
+    }
+  }
+
+  /**
+   * An open-addressing (linear probing) hash table from an int key to a bucket of int indexes. Buckets are numbered in
+   * order of creation, and the table's slots hold the bucket number plus one, so that zero denotes an empty slot.
+   */
+  static final class IntBucketMap {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int size;
+    private int[] bucketKeys = new int[INITIAL_CAPACITY];
+    private int[][] bucketIndexes = new int[INITIAL_CAPACITY][];
+    private int[] bucketSizes = new int[INITIAL_CAPACITY];
+
+    void add(int key, int index) {
+      int bucket = find(key);
+      if (bucket < 0) {
+        bucket = newBucket(key, INITIAL_BUCKET_CAPACITY);
+      }
+      int[] indexes = this.bucketIndexes[bucket];
+      final int bucketSize = this.bucketSizes[bucket];
+      if (bucketSize == indexes.length) {
+        indexes = this.bucketIndexes[bucket] = Arrays.copyOf(indexes, bucketSize * 2);
+      }
+      indexes[bucketSize] = index;
+      this.bucketSizes[bucket] = bucketSize + 1;
+    }
+
+    /**
+     * Merges another map into this one. The indexes in the other map must all be greater than those in this map (as is
+     * the case when merging the result of the right-hand partition into the left), so that buckets stay ordered.
+     */
+    void merge(IntBucketMap other) {
+      for (int otherBucket = 0; otherBucket < other.size; otherBucket++) {
+        final int key = other.bucketKeys[otherBucket];
+        final int[] otherIndexes = other.bucketIndexes[otherBucket];
+        final int otherSize = other.bucketSizes[otherBucket];
+        final int bucket = find(key);
+        if (bucket < 0) {
+          // The other map is discarded after the merge, so its bucket can be adopted rather than copied
+          final int newBucket = newBucket(key, 0);
+          this.bucketIndexes[newBucket] = otherIndexes;
+          this.bucketSizes[newBucket] = otherSize;
+        } else {
+          final int bucketSize = this.bucketSizes[bucket];
+          int[] indexes = this.bucketIndexes[bucket];
+          if (bucketSize + otherSize > indexes.length) {
+            indexes = this.bucketIndexes[bucket] = Arrays.copyOf(indexes, bucketSize + otherSize);
+          }
+          System.arraycopy(otherIndexes, 0, indexes, bucketSize, otherSize);
+          this.bucketSizes[bucket] = bucketSize + otherSize;
+        }
+      }
+    }
+
+    /**
+     * @return The no. of the bucket for the supplied key, or -1 if there isn't one.
+     */
+    int find(int key) {
+      final int mask = this.slots.length - 1;
+      for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+        final int entry = this.slots[slot];
+        if (entry == 0) {
+          return -1;
+        }
+        if (this.bucketKeys[entry - 1] == key) {
+          return entry - 1;
+        }
+      }
+    }
+
+    private int newBucket(int key, int capacity) {
+      if (this.size == this.bucketKeys.length) {
+        final int bucketCapacity = this.size * 2;
+        this.bucketKeys = Arrays.copyOf(this.bucketKeys, bucketCapacity);
+        this.bucketIndexes = Arrays.copyOf(this.bucketIndexes, bucketCapacity);
+        this.bucketSizes = Arrays.copyOf(this.bucketSizes, bucketCapacity);
+      }
+      final int bucket = this.size++;
+      this.bucketKeys[bucket] = key;
+      this.bucketIndexes[bucket] = new int[capacity];
+      // Keep the load factor at or below 0.5
+      if (this.size * 2 > this.slots.length) {
+        rehash(this.slots.length * 2);
+      } else {
+        insertSlot(key, bucket);
+      }
+      return bucket;
+    }
+
+    private void rehash(int capacity) {
+      this.slots = new int[capacity];
+      for (int bucket = 0; bucket < this.size; bucket++) {
+        insertSlot(this.bucketKeys[bucket], bucket);
+      }
+    }
+
+    private void insertSlot(int key, int bucket) {
+      final int mask = this.slots.length - 1;
+      int slot = hash(key) & mask;
+      while (this.slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      this.slots[slot] = bucket + 1;
+    }
+
+    private static int hash(int key) {
+      // Fibonacci hashing, spreading consecutive keys (e.g. epoch days) across the table
+      final int h = key * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+}
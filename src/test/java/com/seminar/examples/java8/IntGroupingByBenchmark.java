@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.groupingByConcurrent;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * JMH benchmark comparing {@link IntGroupingBy} with {@link java.util.stream.Collectors#groupingBy} when grouping
+ * students by their date of birth.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntGroupingByBenchmark {
+
+  @Param({ "1000", "100000", "1000000" })
+  int size;
+
+  private List<Student> students;
+
+  @Setup
+  public void setUp() {
+    this.students = new ArrayList<>(this.size);
+    for (int i = 0; i < this.size; i++) {
+      // Spread dates of birth over roughly 30 years
+      this.students.add(new Student(LocalDate.ofEpochDay((i * 7919L) % 11_000), "s" + i + "@test.net"));
+    }
+  }
+
+  @Benchmark
+  public Map<LocalDate, List<Student>> collectorsGroupingBy() {
+    return this.students.stream().collect(groupingBy(Student::getDob));
+  }
+
+  @Benchmark
+  public Map<LocalDate, List<Student>> collectorsGroupingByParallel() {
+    return this.students.parallelStream().collect(groupingBy(Student::getDob));
+  }
+
+  @Benchmark
+  public Map<LocalDate, List<Student>> collectorsGroupingByConcurrent() {
+    return this.students.parallelStream().collect(groupingByConcurrent(Student::getDob));
+  }
+
+  @Benchmark
+  public IntGroupingBy.IntGroups<Student> groupingByInt() {
+    return IntGroupingBy.groupingByInt(this.students, s -> (int) s.getDob().toEpochDay());
+  }
+
+  @Benchmark
+  public IntGroupingBy.IntGroups<Student> parallelGroupingByInt() {
+    return IntGroupingBy.parallelGroupingByInt(this.students, s -> (int) s.getDob().toEpochDay());
+  }
+
+  @Benchmark
+  public Map<LocalDate, List<Student>> groupingByIntAsMap() {
+    return IntGroupingBy.groupingByInt(this.students, s -> (int) s.getDob().toEpochDay()).asMap(LocalDate::ofEpochDay);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static java.util.stream.Collectors.groupingBy;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.collection.IsMapContaining.hasEntry;
+import static org.junit.Assert.assertThat;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.IntGroupingBy.IntGroups;
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Tests that {@link IntGroupingBy} groups elements the same way as {@link java.util.stream.Collectors#groupingBy}.
+ */
+public class IntGroupingByTest {
+
+  @Test
+  public void testGroupingByDob() {
+    final List<Student> students = new ArrayList<>();
+    final Student s1 = new Student(LocalDate.of(1974, Month.JUNE, 21), "joe.bloggs@test.net");
+    students.add(s1);
+    final Student s2 = new Student(LocalDate.of(1980, Month.JANUARY, 2), "jane.bloggs@test.net");
+    students.add(s2);
+    final Student s3 = new Student(s1.getDob(), "jim.bloggs@test.net");
+    students.add(s3);
+    final Student s4 = new Student(LocalDate.of(1973, Month.JULY, 12), "nellie.bloggs@test.net");
+    students.add(s4);
+
+    final IntGroups<Student> groups = IntGroupingBy.groupingByInt(students, s -> (int) s.getDob().toEpochDay());
+    final Map<LocalDate, List<Student>> studentsGroupByDob = groups.asMap(LocalDate::ofEpochDay);
+
+    assertThat(studentsGroupByDob.keySet(), hasSize(3));
+    assertThat(studentsGroupByDob, hasEntry(is(s1.getDob()), containsInAnyOrder(s1, s3)));
+    assertThat(studentsGroupByDob, hasEntry(is(s2.getDob()), contains(s2)));
+    assertThat(studentsGroupByDob, hasEntry(is(s4.getDob()), contains(s4)));
+    assertThat(groups.indexes((int) s1.getDob().toEpochDay()), is(new int[] { 0, 2 }));
+    assertThat(groups.group(0), is(empty()));
+  }
+
+  @Test
+  public void testSequentialAndParallelGroupingMatchCollectors() {
+    final List<Student> students = new ArrayList<>();
+    for (int i = 0; i < 50_000; i++) {
+      students.add(new Student(LocalDate.ofEpochDay((i * 7919L) % 3000), "s" + i + "@test.net"));
+    }
+    final Map<LocalDate, List<Student>> expected = students.stream().collect(groupingBy(Student::getDob));
+
+    final Map<LocalDate, List<Student>> sequential = IntGroupingBy.groupingByInt(students,
+        s -> (int) s.getDob().toEpochDay()).asMap(LocalDate::ofEpochDay);
+    final Map<LocalDate, List<Student>> parallel = IntGroupingBy.parallelGroupingByInt(students,
+        s -> (int) s.getDob().toEpochDay()).asMap(LocalDate::ofEpochDay);
+
+    // Buckets preserve encounter order, in both modes
+    assertThat(sequential, is(expected));
+    assertThat(parallel, is(expected));
+  }
+
+  @Test
+  public void testGroupingANonRandomAccessList() {
+    final List<String> words = new LinkedList<>();
+    words.add("the");
+    words.add("quick");
+    words.add("brown");
+    words.add("fox");
+
+    final IntGroups<String> groups = IntGroupingBy.groupingByInt(words, String::length);
+
+    assertThat(groups.size(), is(2));
+    assertThat(groups.group(5), contains("quick", "brown"));
+    assertThat(groups.group(3), contains("the", "fox"));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of each classic for-loop in {@link IntStreamExamplesTest} against its functional equivalent, over a
+ * range of sizes.
+ * <p>
+ * The loops are only parameterised by size. The functional versions are also run sequentially and in parallel, using
+ * a primitive {@link IntStream} and a boxed {@code Stream<Integer>}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntStreamExamplesBenchmark {
+
+  /**
+   * The no. of ints iterated over.
+   */
+  @State(Scope.Benchmark)
+  public static class Size {
+    @Param({ "10", "1000", "100000", "10000000" })
+    int size;
+  }
+
+  /**
+   * How a stream is executed.
+   */
+  @State(Scope.Benchmark)
+  public static class Execution {
+    @Param({ "false", "true" })
+    boolean parallel;
+
+    @Param({ "false", "true" })
+    boolean boxed;
+  }
+
+  // ----------------------------------------------------------------------------------------------------------- range
+
+  @Benchmark
+  public int rangeLoop(Size s) {
+    int sum = 0;
+    for (int i = 0; i < s.size; i++) {
+      sum += i;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int rangeStream(Size s, Execution e) {
+    final IntStream range = parallel(IntStream.range(0, s.size), e);
+    return e.boxed ? range.boxed().reduce(0, Integer::sum) : range.sum();
+  }
+
+  /**
+   * As in {@link IntStreamExamplesTest#testRange()}, which accumulates using a {@link LongAdder}.
+   */
+  @Benchmark
+  public long rangeForEachLongAdder(Size s, Execution e) {
+    final LongAdder a = new LongAdder();
+    final IntStream range = parallel(IntStream.range(0, s.size), e);
+    if (e.boxed) {
+      range.boxed().forEach(a::add);
+    } else {
+      range.forEach(a::add);
+    }
+    return a.sum();
+  }
+
+  // ------------------------------------------------------------------------------------------ iterate, skipping values
+
+  @Benchmark
+  public int iterateSkippingLoop(Size s) {
+    int sum = 0;
+    for (int i = 1; i < 2 * s.size; i = i + 2) {
+      sum += i;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int iterateSkippingStream(Size s, Execution e) {
+    if (e.boxed) {
+      return parallel(Stream.iterate(1, i -> i + 2).limit(s.size), e).reduce(0, Integer::sum);
+    }
+    return parallel(IntStream.iterate(1, i -> i + 2).limit(s.size), e).sum();
+  }
+
+  // ----------------------------------------------------------------------------------------- iterate, in reverse order
+
+  @Benchmark
+  public int iterateReverseLoop(Size s) {
+    int sum = 0;
+    for (int i = s.size; i > 0; i--) {
+      sum += i;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int iterateReverseStream(Size s, Execution e) {
+    if (e.boxed) {
+      return parallel(Stream.iterate(s.size, i -> i - 1).limit(s.size), e).reduce(0, Integer::sum);
+    }
+    return parallel(IntStream.iterate(s.size, i -> i - 1).limit(s.size), e).sum();
+  }
+
+  private static IntStream parallel(IntStream stream, Execution e) {
+    return e.parallel ? stream.parallel() : stream;
+  }
+
+  private static <T> Stream<T> parallel(Stream<T> stream, Execution e) {
+    return e.parallel ? stream.parallel() : stream;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.math.BigDecimal;
+
+import com.seminar.examples.java8.LambdaExpressionExamplesTest.Invoice;
+
+/**
+ * An immutable key identifying an {@link Invoice}, by its id and amount, for use in place of the invoice in hash-based
+ * collections such as a {@code HashMap} or {@code HashSet}.
+ * <p>
+ * It's equal to another key under the same conditions as {@link Invoice#equals(Object)} - same id, and an amount with
+ * the same value and scale - but its hash code is computed once, on construction, rather than by boxing the id and
+ * hashing the amount on every call, and {@link #equals(Object)} has no side effects, so doesn't log (and serialise
+ * threads on {@code System.out}).
+ * <p>
+ * For an amount whose unscaled value fits in a long, as is typical, the key also holds the unscaled value and scale,
+ * and equals combines the comparison of the hash, id, unscaled value, scale and representation of two keys into a
+ * single branch, only comparing the amounts as BigDecimals if their unscaled values don't fit in a long.
+ */
+final class InvoiceKey {
+
+  private final int id;
+  private final BigDecimal amount;
+  private final long unscaledAmount;
+  private final int scale;
+  /** 1 if the unscaled amount doesn't fit in a long, in which case the BigDecimal amounts are compared, else 0. */
+  private final int inflated;
+  private final int hash;
+
+  private InvoiceKey(int id, BigDecimal amount) {
+    this.id = id;
+    this.amount = amount;
+    this.scale = amount.scale();
+    // A BigDecimal's precision is at most 18 digits if its unscaled value fits in a long
+    if (amount.precision() <= 18) {
+      this.unscaledAmount = amount.unscaledValue().longValue();
+      this.inflated = 0;
+    } else {
+      this.unscaledAmount = 0;
+      this.inflated = 1;
+    }
+    this.hash = 31 * id + amount.hashCode();
+  }
+
+  /**
+   * @param invoice The invoice.
+   * @return A key identifying the invoice.
+   */
+  static InvoiceKey of(Invoice invoice) {
+    return new InvoiceKey(invoice.getId(), invoice.getAmount());
+  }
+
+  /**
+   * @param id The invoice's id.
+   * @param amount The invoice's amount.
+   * @return A key identifying an invoice with the supplied id and amount.
+   */
+  static InvoiceKey of(int id, BigDecimal amount) {
+    return new InvoiceKey(id, amount);
+  }
+
+  int getId() {
+    return this.id;
+  }
+
+  BigDecimal getAmount() {
+    return this.amount;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof InvoiceKey)) {
+      return false;
+    }
+    final InvoiceKey other = (InvoiceKey) obj;
+    final long differences = (this.hash ^ other.hash) | (this.id ^ other.id) | (this.scale ^ other.scale)
+        | (this.inflated ^ other.inflated) | (this.unscaledAmount ^ other.unscaledAmount);
+    return differences == 0 && (this.inflated == 0 || this.amount.equals(other.amount));
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+
+  @Override
+  public String toString() {
+    return "id [" + this.id + "], amount [" + this.amount + "]";
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.seminar.examples.java8.LambdaExpressionExamplesTest.Invoice;
+
+/**
+ * JMH benchmark of building, and looking up every entry of, a {@code HashMap} keyed by {@link Invoice} against one
+ * keyed by {@link InvoiceKey}, over a range of no. of invoices.
+ * <p>
+ * The lookups use equal copies of the keys, so each lookup calls equals. As {@link Invoice#equals(Object)} logs every
+ * call, {@code System.out} is replaced by a stream which discards its output while the benchmark runs - the cost of
+ * formatting each message, and of the stream's lock, remains.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class InvoiceKeyBenchmark {
+
+  /**
+   * The invoices, their keys, and equal copies of each.
+   */
+  @State(Scope.Benchmark)
+  public static class Invoices {
+    @Param({ "1000", "100000", "1000000" })
+    int size;
+
+    Invoice[] invoices;
+    Invoice[] invoiceCopies;
+    InvoiceKey[] keys;
+    InvoiceKey[] keyCopies;
+    Map<Invoice, Integer> invoiceMap;
+    Map<InvoiceKey, Integer> keyMap;
+    private PrintStream out;
+
+    @Setup
+    public void setUp() {
+      this.out = System.out;
+      System.setOut(new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+      }));
+      this.invoices = new Invoice[this.size];
+      this.invoiceCopies = new Invoice[this.size];
+      this.keys = new InvoiceKey[this.size];
+      this.keyCopies = new InvoiceKey[this.size];
+      for (int i = 0; i < this.size; i++) {
+        final long unscaledAmount = (i * 7919L) % 100_000_000;
+        this.invoices[i] = new Invoice(i, BigDecimal.valueOf(unscaledAmount, 2));
+        this.invoiceCopies[i] = new Invoice(i, BigDecimal.valueOf(unscaledAmount, 2));
+        this.keys[i] = InvoiceKey.of(this.invoices[i]);
+        this.keyCopies[i] = InvoiceKey.of(this.invoiceCopies[i]);
+      }
+      this.invoiceMap = invoiceMap(this);
+      this.keyMap = keyMap(this);
+    }
+
+    @TearDown
+    public void tearDown() {
+      System.setOut(this.out);
+    }
+  }
+
+  @Benchmark
+  public Map<Invoice, Integer> buildInvoiceMap(Invoices s) {
+    return invoiceMap(s);
+  }
+
+  @Benchmark
+  public Map<InvoiceKey, Integer> buildKeyMap(Invoices s) {
+    return keyMap(s);
+  }
+
+  @Benchmark
+  public long lookupInvoiceMap(Invoices s) {
+    long sum = 0;
+    for (Invoice invoice : s.invoiceCopies) {
+      sum += s.invoiceMap.get(invoice);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long lookupKeyMap(Invoices s) {
+    long sum = 0;
+    for (InvoiceKey key : s.keyCopies) {
+      sum += s.keyMap.get(key);
+    }
+    return sum;
+  }
+
+  private static Map<Invoice, Integer> invoiceMap(Invoices s) {
+    final Map<Invoice, Integer> map = new HashMap<>();
+    for (int i = 0; i < s.invoices.length; i++) {
+      map.put(s.invoices[i], i);
+    }
+    return map;
+  }
+
+  private static Map<InvoiceKey, Integer> keyMap(Invoices s) {
+    final Map<InvoiceKey, Integer> map = new HashMap<>();
+    for (int i = 0; i < s.keys.length; i++) {
+      map.put(s.keys[i], i);
+    }
+    return map;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.LambdaExpressionExamplesTest.Invoice;
+
+/**
+ * Tests for {@link InvoiceKey}.
+ */
+public class InvoiceKeyTest {
+
+  @Test
+  public void testEquals() {
+    final InvoiceKey key = InvoiceKey.of(new Invoice(1, new BigDecimal("390230.10")));
+
+    assertThat(key.equals(InvoiceKey.of(1, new BigDecimal("390230.10"))), is(true));
+    assertThat(key.hashCode(), is(InvoiceKey.of(1, new BigDecimal("390230.10")).hashCode()));
+    // Like Invoice.equals(), amounts must have the same scale
+    assertThat(key.equals(InvoiceKey.of(1, new BigDecimal("390230.1"))), is(false));
+    assertThat(key.equals(InvoiceKey.of(2, new BigDecimal("390230.10"))), is(false));
+    assertThat(key.equals(InvoiceKey.of(1, new BigDecimal("390230.11"))), is(false));
+    assertThat(key.equals(null), is(false));
+    assertThat(key.equals(new Invoice(1, new BigDecimal("390230.10"))), is(false));
+  }
+
+  @Test
+  public void testEqualsWithAmountsWhichOverflowALong() {
+    final BigDecimal amount = new BigDecimal("123456789012345678901234.56");
+    final InvoiceKey key = InvoiceKey.of(1, amount);
+
+    assertThat(key.equals(InvoiceKey.of(1, new BigDecimal(amount.toString()))), is(true));
+    assertThat(key.equals(InvoiceKey.of(1, amount.add(BigDecimal.ONE))), is(false));
+    assertThat(key.equals(InvoiceKey.of(1, new BigDecimal("0.56"))), is(false));
+  }
+
+  @Test
+  public void testHashMapLookup() {
+    final Map<InvoiceKey, Integer> map = new HashMap<>();
+    for (int id = 0; id < 10_000; id++) {
+      map.put(InvoiceKey.of(id, BigDecimal.valueOf(id * 31L, 2)), id);
+    }
+
+    for (int id = 0; id < 10_000; id++) {
+      assertThat(map.get(InvoiceKey.of(id, BigDecimal.valueOf(id * 31L, 2))), is(id));
+    }
+    assertThat(map.get(InvoiceKey.of(1, BigDecimal.valueOf(31L, 1))), is((Integer) null));
+  }
+}
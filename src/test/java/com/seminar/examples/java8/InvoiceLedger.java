@@ -0,0 +1,359 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.seminar.examples.java8.LambdaExpressionExamplesTest.Invoice;
+
+/**
+ * A concurrent index of {@link Invoice}s, sorted by (amount, id), which answers range and rank queries without
+ * filtering and re-sorting a list of invoices (see
+ * {@link LambdaExpressionExamplesTest#testRefactorSortingAListUsingLambdaImplementationOfComparator()}).
+ * <p>
+ * The invoices are held in an immutable (persistent) AVL tree, in which each node also records the no. of invoices in
+ * its subtree - an order-statistic tree. Adding or removing an invoice copies the O(log n) nodes on the path to it, and
+ * publishes the new root with a CAS, retrying if another writer published first. So writes are lock-free, and reads
+ * never block: each read works on the snapshot of the tree at its start, which isn't changed by later writes.
+ * <p>
+ * However, as every write publishes the same root, writes are serialised on it, and a writer whose CAS fails discards
+ * the path it copied and starts again. So write throughput doesn't scale with the no. of writer threads, and falls
+ * under heavy write contention. (A {@link java.util.concurrent.ConcurrentSkipListMap} would scale for writers, but
+ * can't answer rank queries in O(log n).) The ledger suits read-mostly use, with writes from a few threads.
+ * <p>
+ * Range scans and ascending or descending streams are O(log n) to find their first invoice, then amortised O(1) per
+ * invoice. As each node knows the size of its subtree, {@link #nthLargest(int)} and {@link #count(BigDecimal,
+ * BigDecimal)} are also O(log n), as is {@link #size()}.
+ * <p>
+ * Amounts are compared by value, so invoices with the same id and an amount which differs only in scale, e.g. 10.5 and
+ * 10.50, are treated as the same invoice.
+ */
+final class InvoiceLedger {
+
+  private static final Comparator<Invoice> BY_AMOUNT_AND_ID =
+      Comparator.comparing(Invoice::getAmount).thenComparingInt(Invoice::getId);
+
+  private static final int STREAM_CHARACTERISTICS =
+      Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+  private final AtomicReference<Node> root = new AtomicReference<>();
+
+  /**
+   * @param invoice The invoice to add.
+   * @return True if the ledger didn't already contain the invoice.
+   */
+  boolean add(Invoice invoice) {
+    while (true) {
+      final Node root = this.root.get();
+      final Node updated = insert(root, invoice);
+      if (updated == root) {
+        return false;
+      }
+      if (this.root.compareAndSet(root, updated)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * @param invoice The invoice to remove.
+   * @return True if the ledger contained the invoice.
+   */
+  boolean remove(Invoice invoice) {
+    while (true) {
+      final Node root = this.root.get();
+      final Node updated = delete(root, invoice);
+      if (updated == root) {
+        return false;
+      }
+      if (this.root.compareAndSet(root, updated)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * @return The no. of invoices.
+   */
+  int size() {
+    return size(this.root.get());
+  }
+
+  /**
+   * @param from The min amount, inclusive.
+   * @param to The max amount, inclusive.
+   * @param descending True to stream the invoices in descending order.
+   * @return A stream of the invoices with an amount from and to the supplied amounts, in order of amount, then id.
+   */
+  Stream<Invoice> between(BigDecimal from, BigDecimal to, boolean descending) {
+    if (from.compareTo(to) > 0) {
+      return Stream.empty();
+    }
+    return stream(this.root.get(), new Invoice(Integer.MIN_VALUE, from), new Invoice(Integer.MAX_VALUE, to),
+        descending);
+  }
+
+  /**
+   * @param from The min amount, inclusive.
+   * @param to The max amount, inclusive.
+   * @return The no. of invoices with an amount from and to the supplied amounts.
+   */
+  int count(BigDecimal from, BigDecimal to) {
+    if (from.compareTo(to) > 0) {
+      return 0;
+    }
+    final Node root = this.root.get();
+    return countBelow(root, new Invoice(Integer.MAX_VALUE, to), true)
+        - countBelow(root, new Invoice(Integer.MIN_VALUE, from), false);
+  }
+
+  /**
+   * @return A stream of every invoice, in ascending order of amount, then id.
+   */
+  Stream<Invoice> ascending() {
+    return stream(this.root.get(), null, null, false);
+  }
+
+  /**
+   * @return A stream of every invoice, in descending order of amount, then id.
+   */
+  Stream<Invoice> descending() {
+    return stream(this.root.get(), null, null, true);
+  }
+
+  /**
+   * @param k The rank of the invoice, from 1 for the largest.
+   * @return The invoice with the kth largest amount (and then id), if the ledger has at least k invoices.
+   */
+  Optional<Invoice> nthLargest(int k) {
+    if (k < 1) {
+      throw new IllegalArgumentException("Invalid rank [" + k + "]");
+    }
+    Node node = this.root.get();
+    if (k > size(node)) {
+      return Optional.empty();
+    }
+    // Select the invoice with (size - k) smaller invoices
+    int index = size(node) - k;
+    while (true) {
+      final int leftSize = size(node.left);
+      if (index < leftSize) {
+        node = node.left;
+      } else if (index == leftSize) {
+        return Optional.of(node.invoice);
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  private static Stream<Invoice> stream(Node root, Invoice from, Invoice to, boolean descending) {
+    final int size = from == null ? size(root) : countBelow(root, to, true) - countBelow(root, from, false);
+    return StreamSupport.stream(Spliterators.spliterator(new RangeIterator(root, from, to, descending), size,
+        STREAM_CHARACTERISTICS), false);
+  }
+
+  /**
+   * @return The no. of invoices less than (or, if inclusive, equal to) the supplied invoice.
+   */
+  private static int countBelow(Node node, Invoice invoice, boolean inclusive) {
+    int count = 0;
+    while (node != null) {
+      final int c = BY_AMOUNT_AND_ID.compare(node.invoice, invoice);
+      if (c < 0 || (c == 0 && inclusive)) {
+        count += size(node.left) + 1;
+        node = node.right;
+      } else {
+        node = node.left;
+      }
+    }
+    return count;
+  }
+
+  // ------------------------------------------------------------------------------------ persistent AVL tree updates
+
+  /**
+   * @return The root of a tree with the invoice added, or the supplied node if the tree already contains it.
+   */
+  private static Node insert(Node node, Invoice invoice) {
+    if (node == null) {
+      return new Node(invoice, null, null);
+    }
+    final int c = BY_AMOUNT_AND_ID.compare(invoice, node.invoice);
+    if (c < 0) {
+      final Node left = insert(node.left, invoice);
+      return left == node.left ? node : balance(node.invoice, left, node.right);
+    }
+    if (c > 0) {
+      final Node right = insert(node.right, invoice);
+      return right == node.right ? node : balance(node.invoice, node.left, right);
+    }
+    return node;
+  }
+
+  /**
+   * @return The root of a tree with the invoice removed, or the supplied node if the tree doesn't contain it.
+   */
+  private static Node delete(Node node, Invoice invoice) {
+    if (node == null) {
+      return null;
+    }
+    final int c = BY_AMOUNT_AND_ID.compare(invoice, node.invoice);
+    if (c < 0) {
+      final Node left = delete(node.left, invoice);
+      return left == node.left ? node : balance(node.invoice, left, node.right);
+    }
+    if (c > 0) {
+      final Node right = delete(node.right, invoice);
+      return right == node.right ? node : balance(node.invoice, node.left, right);
+    }
+    if (node.left == null) {
+      return node.right;
+    }
+    if (node.right == null) {
+      return node.left;
+    }
+    Node successor = node.right;
+    while (successor.left != null) {
+      successor = successor.left;
+    }
+    return balance(successor.invoice, node.left, deleteMin(node.right));
+  }
+
+  private static Node deleteMin(Node node) {
+    if (node.left == null) {
+      return node.right;
+    }
+    return balance(node.invoice, deleteMin(node.left), node.right);
+  }
+
+  /**
+   * @return A new node with the supplied invoice and subtrees, whose heights differ by at most 2, rotated if needed so
+   * that they differ by at most 1.
+   */
+  private static Node balance(Invoice invoice, Node left, Node right) {
+    final int leftHeight = height(left);
+    final int rightHeight = height(right);
+    if (leftHeight > rightHeight + 1) {
+      if (height(left.left) >= height(left.right)) {
+        return new Node(left.invoice, left.left, new Node(invoice, left.right, right));
+      }
+      return new Node(left.right.invoice, new Node(left.invoice, left.left, left.right.left),
+          new Node(invoice, left.right.right, right));
+    }
+    if (rightHeight > leftHeight + 1) {
+      if (height(right.right) >= height(right.left)) {
+        return new Node(right.invoice, new Node(invoice, left, right.left), right.right);
+      }
+      return new Node(right.left.invoice, new Node(invoice, left, right.left.left),
+          new Node(right.invoice, right.left.right, right.right));
+    }
+    return new Node(invoice, left, right);
+  }
+
+  private static int height(Node node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int size(Node node) {
+    return node == null ? 0 : node.size;
+  }
+
+  /**
+   * An immutable node of the tree.
+   */
+  private static final class Node {
+    private final Invoice invoice;
+    private final Node left;
+    private final Node right;
+    private final int height;
+    /** The no. of invoices in the subtree rooted at this node. */
+    private final int size;
+
+    Node(Invoice invoice, Node left, Node right) {
+      this.invoice = invoice;
+      this.left = left;
+      this.right = right;
+      this.height = Math.max(height(left), height(right)) + 1;
+      this.size = size(left) + size(right) + 1;
+    }
+  }
+
+  /**
+   * An in-order iterator over the invoices of a snapshot of the tree between two (optional, inclusive) bounds, which
+   * holds the path to the next invoice on a stack.
+   */
+  private static final class RangeIterator implements Iterator<Invoice> {
+    private final ArrayDeque<Node> path = new ArrayDeque<>();
+    private final Invoice from;
+    private final Invoice to;
+    private final boolean descending;
+
+    RangeIterator(Node root, Invoice from, Invoice to, boolean descending) {
+      this.from = from;
+      this.to = to;
+      this.descending = descending;
+      // Push the path to the first invoice within the start bound
+      final Invoice start = descending ? to : from;
+      Node node = root;
+      while (node != null) {
+        if (start == null || (descending ? BY_AMOUNT_AND_ID.compare(node.invoice, start) <= 0
+            : BY_AMOUNT_AND_ID.compare(node.invoice, start) >= 0)) {
+          this.path.push(node);
+          node = descending ? node.right : node.left;
+        } else {
+          node = descending ? node.left : node.right;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      final Node next = this.path.peek();
+      if (next == null) {
+        return false;
+      }
+      final Invoice end = this.descending ? this.from : this.to;
+      return end == null || (this.descending ? BY_AMOUNT_AND_ID.compare(next.invoice, end) >= 0
+          : BY_AMOUNT_AND_ID.compare(next.invoice, end) <= 0);
+    }
+
+    @Override
+    public Invoice next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final Node next = this.path.pop();
+      Node node = this.descending ? next.left : next.right;
+      while (node != null) {
+        this.path.push(node);
+        node = this.descending ? node.right : node.left;
+      }
+      return next.invoice;
+    }
+  }
+}
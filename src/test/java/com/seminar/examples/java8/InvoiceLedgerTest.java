@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.LambdaExpressionExamplesTest.Invoice;
+
+/**
+ * Tests for {@link InvoiceLedger}.
+ */
+public class InvoiceLedgerTest {
+
+  @Test
+  public void testBetween() {
+    final InvoiceLedger ledger = new InvoiceLedger();
+    final List<Invoice> invoices = invoices(0, 1_000);
+    invoices.forEach(ledger::add);
+
+    final BigDecimal from = new BigDecimal("10.0");
+    final BigDecimal to = new BigDecimal("20.00");
+    final List<Integer> expected = invoices.stream()
+        .filter(i -> i.getAmount().compareTo(from) >= 0 && i.getAmount().compareTo(to) <= 0)
+        .sorted(Comparator.comparing(Invoice::getAmount).thenComparingInt(Invoice::getId))
+        .map(Invoice::getId).collect(Collectors.toList());
+
+    assertThat(ids(ledger.between(from, to, false).collect(Collectors.toList())), is(expected));
+    final List<Integer> descending = ids(ledger.between(from, to, true).collect(Collectors.toList()));
+    assertThat(descending.size(), is(expected.size()));
+    assertThat(descending.get(0), is(expected.get(expected.size() - 1)));
+    assertThat(ledger.between(to, from, false).count(), is(0L));
+  }
+
+  @Test
+  public void testNthLargest() {
+    final InvoiceLedger ledger = new InvoiceLedger();
+    invoices(0, 100).forEach(ledger::add);
+
+    final List<Invoice> descending = ledger.descending().collect(Collectors.toList());
+    assertThat(ledger.nthLargest(1).get().getId(), is(descending.get(0).getId()));
+    assertThat(ledger.nthLargest(10).get().getId(), is(descending.get(9).getId()));
+    assertThat(ledger.nthLargest(101), is(Optional.empty()));
+  }
+
+  @Test
+  public void testRankAndCountAfterAddsAndRemoves() {
+    final InvoiceLedger ledger = new InvoiceLedger();
+    final List<Invoice> invoices = invoices(0, 20_000);
+    invoices.forEach(ledger::add);
+    // Remove every third invoice, so the tree is rebalanced on removal too
+    final List<Invoice> remaining = new ArrayList<>();
+    for (int i = 0; i < invoices.size(); i++) {
+      if (i % 3 == 0) {
+        assertThat(ledger.remove(invoices.get(i)), is(true));
+      } else {
+        remaining.add(invoices.get(i));
+      }
+    }
+    remaining.sort(Comparator.comparing(Invoice::getAmount).thenComparingInt(Invoice::getId).reversed());
+
+    assertThat(ledger.size(), is(remaining.size()));
+    for (int k = 1; k <= remaining.size(); k += 97) {
+      assertThat(ledger.nthLargest(k).get().getId(), is(remaining.get(k - 1).getId()));
+    }
+    assertThat(ledger.nthLargest(remaining.size()).get().getId(), is(remaining.get(remaining.size() - 1).getId()));
+    final BigDecimal from = new BigDecimal("25");
+    final BigDecimal to = new BigDecimal("75.5");
+    assertThat((long) ledger.count(from, to), is(remaining.stream()
+        .filter(i -> i.getAmount().compareTo(from) >= 0 && i.getAmount().compareTo(to) <= 0).count()));
+    assertThat(ledger.descending().map(Invoice::getId).collect(Collectors.toList()), is(ids(remaining)));
+  }
+
+  @Test
+  public void testAddAndRemove() {
+    final InvoiceLedger ledger = new InvoiceLedger();
+    final Invoice invoice = new Invoice(1, new BigDecimal("10.5"));
+
+    assertThat(ledger.add(invoice), is(true));
+    assertThat(ledger.add(new Invoice(1, new BigDecimal("10.50"))), is(false));
+    assertThat(ledger.add(new Invoice(2, new BigDecimal("10.5"))), is(true));
+    assertThat(ledger.size(), is(2));
+    assertThat(ledger.remove(invoice), is(true));
+    assertThat(ledger.remove(invoice), is(false));
+    assertThat(ledger.size(), is(1));
+  }
+
+  @Test
+  public void testConcurrentWritersAndReaders() throws Exception {
+    final InvoiceLedger ledger = new InvoiceLedger();
+    final int writers = 4;
+    final int invoicesPerWriter = 25_000;
+    final ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int w = 0; w < writers; w++) {
+        final List<Invoice> invoices = invoices(w * invoicesPerWriter, invoicesPerWriter);
+        futures.add(executor.submit(() -> {
+          start.await();
+          invoices.forEach(ledger::add);
+          return null;
+        }));
+      }
+      // A reader scans the ledger while it's written, checking every scan is in order
+      final Future<Boolean> reader = executor.submit(() -> {
+        start.await();
+        boolean ordered = true;
+        while (ledger.size() < writers * invoicesPerWriter) {
+          final List<Invoice> scanned = ledger.between(BigDecimal.ZERO, new BigDecimal("50"), false)
+              .collect(Collectors.toList());
+          for (int i = 1; i < scanned.size(); i++) {
+            ordered &= scanned.get(i - 1).getAmount().compareTo(scanned.get(i).getAmount()) <= 0;
+          }
+        }
+        return ordered;
+      });
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertThat(reader.get(30, TimeUnit.SECONDS), is(true));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(ledger.size(), is(writers * invoicesPerWriter));
+    assertThat(ledger.ascending().count(), is((long) writers * invoicesPerWriter));
+  }
+
+  @Test
+  public void testConcurrentWritersAddingAndRemovingTheSameInvoices() throws Exception {
+    final InvoiceLedger ledger = new InvoiceLedger();
+    final int writers = 8;
+    final List<Invoice> invoices = invoices(0, 20_000);
+    final ExecutorService executor = Executors.newFixedThreadPool(writers);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<Integer>> futures = new ArrayList<>();
+      for (int w = 0; w < writers; w++) {
+        final int writer = w;
+        futures.add(executor.submit(() -> {
+          start.await();
+          // Every writer adds every invoice, and immediately removes its own share of them, which no other writer
+          // removes, so each of those removes must find the invoice
+          int removed = 0;
+          for (int i = 0; i < invoices.size(); i++) {
+            final Invoice invoice = invoices.get((i + writer * 997) % invoices.size());
+            ledger.add(invoice);
+            if (invoice.getId() % writers == writer && ledger.remove(invoice)) {
+              removed++;
+            }
+          }
+          return removed;
+        }));
+      }
+      start.countDown();
+      int removed = 0;
+      for (Future<Integer> future : futures) {
+        removed += future.get(60, TimeUnit.SECONDS);
+      }
+      assertThat(removed, is(invoices.size()));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Whether a removed invoice was re-added by another writer depends on timing, but the tree must be consistent
+    final List<Invoice> ascending = ledger.ascending().collect(Collectors.toList());
+    final List<Invoice> expected = ascending.stream()
+        .sorted(Comparator.comparing(Invoice::getAmount).thenComparingInt(Invoice::getId))
+        .distinct()
+        .collect(Collectors.toList());
+    assertThat(ids(ascending), is(ids(expected)));
+    assertThat(ledger.size(), is(ascending.size()));
+    for (int n = 1; n <= ascending.size(); n += 101) {
+      assertThat(ledger.nthLargest(n).get(), is(ascending.get(ascending.size() - n)));
+    }
+    final BigDecimal from = BigDecimal.TEN;
+    final BigDecimal to = new BigDecimal("20");
+    assertThat(ledger.count(from, to), is((int) ascending.stream()
+        .filter(i -> i.getAmount().compareTo(from) >= 0 && i.getAmount().compareTo(to) <= 0)
+        .count()));
+  }
+
+  private static List<Invoice> invoices(int fromId, int size) {
+    // Amounts from 0.00 to 99.99, so many invoices have the same amount
+    return IntStream.range(fromId, fromId + size)
+        .mapToObj(id -> new Invoice(id, BigDecimal.valueOf((id * 7919L) % 10_000, 2)))
+        .collect(Collectors.toList());
+  }
+
+  private static List<Integer> ids(List<Invoice> invoices) {
+    return invoices.stream().map(Invoice::getId).collect(Collectors.toList());
+  }
+}
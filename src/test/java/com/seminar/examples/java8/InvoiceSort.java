@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.seminar.examples.java8.LambdaExpressionExamplesTest.Invoice;
+
+/**
+ * A stable sort of a list of {@link Invoice}s by amount, as a faster alternative to
+ * {@code invoices.sort(Comparator.comparing(Invoice::getAmount))}, which aligns the scales of two BigDecimals on every
+ * comparison (see {@link LambdaExpressionExamplesTest#testRefactorSortingAListUsingLambdaImplementationOfComparator()}).
+ * <p>
+ * Each amount is instead normalised once, to its unscaled value at the max scale of all the amounts, e.g. 72509.234 and
+ * 7548.32 to 72509234 and 7548320, which are then sorted as long keys by {@link KeySort}, in parallel if requested.
+ * <p>
+ * If any normalised amount doesn't fit in a long, the invoices are instead sorted by their normalised amounts as
+ * BigIntegers, which can still be compared without aligning their scales.
+ */
+final class InvoiceSort {
+
+  private InvoiceSort() {
+  }
+
+  /**
+   * @param invoices The invoices to sort in place, by ascending amount. Invoices with equal amounts keep their order.
+   * @param parallel True if the sort should be performed in parallel.
+   */
+  static void sortByAmount(List<Invoice> invoices, boolean parallel) {
+    final Object[] elements = invoices.toArray();
+    final int n = elements.length;
+    if (n < 2) {
+      return;
+    }
+    int maxScale = Integer.MIN_VALUE;
+    for (Object element : elements) {
+      maxScale = Math.max(maxScale, ((Invoice) element).getAmount().scale());
+    }
+    final long[] keys = new long[n];
+    for (int i = 0; i < n; i++) {
+      // Increasing the scale of an amount never rounds it
+      final BigInteger key = ((Invoice) elements[i]).getAmount().setScale(maxScale).unscaledValue();
+      if (key.bitLength() >= Long.SIZE) {
+        sortByUnscaledAmount(invoices, elements, maxScale, parallel);
+        return;
+      }
+      keys[i] = key.longValue();
+    }
+    KeySort.permute(invoices, elements, KeySort.sortedIndexes(keys, parallel));
+  }
+
+  /**
+   * The exact fallback for amounts whose unscaled values (at the max scale) overflow a long.
+   */
+  private static void sortByUnscaledAmount(List<Invoice> invoices, Object[] elements, int maxScale, boolean parallel) {
+    final int n = elements.length;
+    final BigInteger[] keys = new BigInteger[n];
+    final Integer[] indexes = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = ((Invoice) elements[i]).getAmount().setScale(maxScale).unscaledValue();
+      indexes[i] = i;
+    }
+    // Both sorts are stable
+    final Comparator<Integer> byKey = (i, j) -> keys[i].compareTo(keys[j]);
+    if (parallel) {
+      Arrays.parallelSort(indexes, byKey);
+    } else {
+      Arrays.sort(indexes, byKey);
+    }
+    final int[] sortedIndexes = new int[n];
+    for (int i = 0; i < n; i++) {
+      sortedIndexes[i] = indexes[i];
+    }
+    KeySort.permute(invoices, elements, sortedIndexes);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.LambdaExpressionExamplesTest.Invoice;
+
+/**
+ * Tests for {@link InvoiceSort}.
+ */
+public class InvoiceSortTest {
+
+  @Test
+  public void testSortByAmount() {
+    final List<Invoice> invoices = randomInvoices(100_000);
+
+    for (boolean parallel : new boolean[] { false, true }) {
+      final List<Invoice> sorted = new ArrayList<>(invoices);
+      InvoiceSort.sortByAmount(sorted, parallel);
+      assertSortedLikeComparator(sorted, invoices);
+    }
+  }
+
+  @Test
+  public void testSortByAmountWhichOverflowsALong() {
+    final List<Invoice> invoices = new ArrayList<>(randomInvoices(10_000));
+    invoices.add(new Invoice(-1, new BigDecimal("92233720368547758.08")));
+    invoices.add(new Invoice(-2, new BigDecimal("-0.000000000000000001")));
+
+    for (boolean parallel : new boolean[] { false, true }) {
+      final List<Invoice> sorted = new ArrayList<>(invoices);
+      InvoiceSort.sortByAmount(sorted, parallel);
+      assertSortedLikeComparator(sorted, invoices);
+    }
+  }
+
+  @Test
+  public void testSortByAmountInParallelWithWideRange() {
+    final List<Invoice> invoices = new ArrayList<>(Arrays.asList(new Invoice(1, new BigDecimal("300000000.00")),
+        new Invoice(2, new BigDecimal("-10.5")), new Invoice(3, new BigDecimal("1E-10"))));
+
+    InvoiceSort.sortByAmount(invoices, true);
+
+    assertThat(invoices.stream().mapToInt(Invoice::getId).toArray(), is(new int[] { 2, 3, 1 }));
+
+    // Mixed scale and large amounts, whose normalised range is too wide to sort without the sign bit of a packed key
+    final Random random = new Random(7);
+    final List<Invoice> wideInvoices = new ArrayList<>();
+    for (int i = 0; i < 50_000; i++) {
+      wideInvoices.add(new Invoice(i, BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, random.nextInt(8))
+          .multiply(BigDecimal.valueOf(random.nextInt(50_000)))));
+    }
+    final List<Invoice> sorted = new ArrayList<>(wideInvoices);
+    InvoiceSort.sortByAmount(sorted, true);
+    assertSortedLikeComparator(sorted, wideInvoices);
+  }
+
+  @Test
+  public void testEqualAmountsWithDifferentScales() {
+    final List<Invoice> invoices = new ArrayList<>(Arrays.asList(new Invoice(1, new BigDecimal("10.50")),
+        new Invoice(2, new BigDecimal("1.5")), new Invoice(3, new BigDecimal("10.5")),
+        new Invoice(4, new BigDecimal("1E+1"))));
+
+    InvoiceSort.sortByAmount(invoices, false);
+
+    assertThat(invoices.stream().mapToInt(Invoice::getId).toArray(), is(new int[] { 2, 4, 1, 3 }));
+  }
+
+  private static void assertSortedLikeComparator(List<Invoice> sorted, List<Invoice> invoices) {
+    final List<Invoice> expected = new ArrayList<>(invoices);
+    expected.sort(Comparator.comparing(Invoice::getAmount));
+    // Compare the ids, as Invoice.equals() logs every comparison
+    assertThat(sorted.stream().mapToInt(Invoice::getId).toArray(),
+        is(expected.stream().mapToInt(Invoice::getId).toArray()));
+  }
+
+  private static List<Invoice> randomInvoices(int size) {
+    final Random random = new Random(42);
+    final List<Invoice> invoices = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      // Amounts of varying scale, with plenty of equal amounts to check the sort is stable
+      invoices.add(new Invoice(i, BigDecimal.valueOf(random.nextInt(20_000) - 1_000, random.nextInt(4))));
+    }
+    return invoices;
+  }
+}
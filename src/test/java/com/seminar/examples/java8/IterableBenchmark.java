@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmark of the external iteration (for-each loop) in {@link IterableTest} against internal iteration using
+ * {@link Iterable#forEach} and {@link Map#forEach}, and the equivalent stream, over a range of sizes.
+ * <p>
+ * The streams are run sequentially and in parallel, over the boxed elements or a primitive {@code IntStream}. The
+ * sequential iteration of the loops and forEach methods is only parameterised by size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class IterableBenchmark {
+
+  /**
+   * A list and map of the supplied size.
+   */
+  @State(Scope.Benchmark)
+  public static class Data {
+    @Param({ "10", "1000", "100000", "10000000" })
+    int size;
+
+    List<Integer> list;
+    Map<Integer, Integer> map;
+
+    @Setup
+    public void setUp() {
+      final Integer[] elements = new Integer[this.size];
+      Arrays.setAll(elements, i -> i);
+      this.list = new ArrayList<>(Arrays.asList(elements));
+      this.map = new HashMap<>(this.size * 4 / 3 + 1);
+      for (Integer element : elements) {
+        this.map.put(element, element);
+      }
+    }
+  }
+
+  /**
+   * How a stream is executed.
+   */
+  @State(Scope.Benchmark)
+  public static class Execution {
+    @Param({ "false", "true" })
+    boolean parallel;
+
+    @Param({ "false", "true" })
+    boolean boxed;
+  }
+
+  @Benchmark
+  public void forEachLoop(Data d, Blackhole bh) {
+    for (Integer element : d.list) {
+      bh.consume(element);
+    }
+  }
+
+  @Benchmark
+  public void iterableForEach(Data d, Blackhole bh) {
+    d.list.forEach(bh::consume);
+  }
+
+  /**
+   * A stream can't consume elements into a (single-threaded) {@link Blackhole} in parallel, so sums them instead.
+   */
+  @Benchmark
+  public long streamSum(Data d, Execution e) {
+    if (e.boxed) {
+      return (e.parallel ? d.list.parallelStream() : d.list.stream()).reduce(0, Integer::sum);
+    }
+    return (e.parallel ? d.list.parallelStream() : d.list.stream()).mapToInt(Integer::intValue).sum();
+  }
+
+  @Benchmark
+  public void mapEntryLoop(Data d, Blackhole bh) {
+    for (Map.Entry<Integer, Integer> entry : d.map.entrySet()) {
+      bh.consume(entry.getKey());
+      bh.consume(entry.getValue());
+    }
+  }
+
+  @Benchmark
+  public void mapForEach(Data d, Blackhole bh) {
+    d.map.forEach((k, v) -> {
+      bh.consume(k);
+      bh.consume(v);
+    });
+  }
+}
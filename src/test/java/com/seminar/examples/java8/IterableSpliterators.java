@@ -0,0 +1,251 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.AbstractSequentialList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Factory methods for creating a {@link Spliterator} (and {@link Stream}) over an {@link Iterable} which, unlike the
+ * default {@link Iterable#spliterator()}, splits well when processed by a parallel stream.
+ * <p>
+ * The default spliterator has an unknown size, and splits by copying elements from the Iterable's iterator into arrays
+ * of an arithmetically growing batch size (1024, 2048, ...), so that for a source of ~1M elements a parallel stream
+ * only gets a few unbalanced tasks. Instead, the adapter -
+ * <ul>
+ * <li>Uses index-based splitting, without any copying, when the Iterable is a {@link RandomAccess} {@link List}.</li>
+ * <li>Uses the Iterable's own spliterator, e.g. of a {@code HashSet} or {@code TreeSet}, unless it's the default
+ * spliterator over the Iterable's iterator, or a linked list's.</li>
+ * <li>Otherwise, splits by copying batches from the iterator, using the exact size of a {@link Collection}, or a
+ * supplied size hint, to split off (up to) half of the remaining elements at a time, so that the splits are balanced.
+ * The min and max size of a batch can be tuned.</li>
+ * </ul>
+ */
+final class IterableSpliterators {
+
+  static final int DEFAULT_MIN_BATCH_SIZE = 1024;
+  static final int DEFAULT_MAX_BATCH_SIZE = 1 << 20;
+
+  /** The (JDK internal) class of a spliterator over an iterator. */
+  private static final Class<?> ITERATOR_SPLITERATOR_CLASS =
+      Spliterators.spliteratorUnknownSize(Collections.emptyIterator(), 0).getClass();
+
+  private IterableSpliterators() {
+  }
+
+  /**
+   * @param iterable The source of elements.
+   * @param parallel True if the returned stream should be parallel.
+   * @param <T> The type of element.
+   * @return A stream over the elements of the supplied Iterable.
+   */
+  static <T> Stream<T> stream(Iterable<T> iterable, boolean parallel) {
+    return StreamSupport.stream(spliterator(iterable), parallel);
+  }
+
+  /**
+   * @param iterable The source of elements.
+   * @param <T> The type of element.
+   * @return A spliterator over the elements of the supplied Iterable, using default batch sizes.
+   */
+  static <T> Spliterator<T> spliterator(Iterable<T> iterable) {
+    return spliterator(iterable, -1, DEFAULT_MIN_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /**
+   * @param iterable The source of elements.
+   * @param sizeHint The estimated no. of elements, used if the Iterable isn't a {@link Collection}, or -1 if unknown.
+   * @param minBatchSize The min no. of elements to copy from the Iterable's iterator when splitting.
+   * @param maxBatchSize The max no. of elements to copy from the Iterable's iterator when splitting.
+   * @param <T> The type of element.
+   * @return A spliterator over the elements of the supplied Iterable.
+   */
+  static <T> Spliterator<T> spliterator(Iterable<T> iterable, long sizeHint, int minBatchSize, int maxBatchSize) {
+    if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+      throw new IllegalArgumentException(
+          "Invalid batch sizes, min [" + minBatchSize + "], max [" + maxBatchSize + "]");
+    }
+    if (iterable instanceof List && iterable instanceof RandomAccess) {
+      final List<T> list = (List<T>) iterable;
+      return new RandomAccessSpliterator<>(list, 0, list.size());
+    }
+    final Spliterator<T> spliterator = iterable.spliterator();
+    if (!splitsPoorly(iterable, spliterator)) {
+      return spliterator;
+    }
+    // The batches are copied in encounter order, but not sorted, so they don't have the source's comparator
+    final int characteristics = spliterator.characteristics() & ~Spliterator.SORTED;
+    if (iterable instanceof Collection) {
+      final Collection<T> collection = (Collection<T>) iterable;
+      return new BatchSpliterator<>(collection.iterator(), collection.size(), true,
+          characteristics | Spliterator.SIZED, minBatchSize, maxBatchSize);
+    }
+    return new BatchSpliterator<>(iterable.iterator(), sizeHint < 0 ? Long.MAX_VALUE : sizeHint, false,
+        characteristics & ~(Spliterator.SIZED | Spliterator.SUBSIZED), minBatchSize, maxBatchSize);
+  }
+
+  /**
+   * @return True if the spliterator is the Iterable's iterator wrapped by {@link Spliterators} (the default for an
+   * Iterable or Collection), or belongs to a linked list - which report SUBSIZED, but split by copying arithmetically
+   * growing batches.
+   */
+  private static boolean splitsPoorly(Iterable<?> iterable, Spliterator<?> spliterator) {
+    return iterable instanceof AbstractSequentialList
+        || ITERATOR_SPLITERATOR_CLASS.isInstance(spliterator);
+  }
+
+  /**
+   * A spliterator over a range of the indexes of a random-access list, which splits the range in half.
+   */
+  private static final class RandomAccessSpliterator<T> implements Spliterator<T> {
+    private final List<T> list;
+    private int index;
+    private final int end;
+
+    RandomAccessSpliterator(List<T> list, int index, int end) {
+      this.list = list;
+      this.index = index;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (this.index >= this.end) {
+        return false;
+      }
+      action.accept(this.list.get(this.index++));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      for (int i = this.index; i < this.end; i++) {
+        action.accept(this.list.get(i));
+      }
+      this.index = this.end;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      final int mid = (this.index + this.end) >>> 1;
+      if (mid <= this.index) {
+        return null;
+      }
+      final Spliterator<T> prefix = new RandomAccessSpliterator<>(this.list, this.index, mid);
+      this.index = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.end - this.index;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED;
+    }
+  }
+
+  /**
+   * A spliterator over an iterator, which splits by copying a batch of (up to) half of the estimated remaining elements
+   * into an array, bounded by a min and max batch size. If there's no estimate, the batch size grows with each split.
+   */
+  private static final class BatchSpliterator<T> implements Spliterator<T> {
+    private final Iterator<T> iterator;
+    private final boolean exactSize;
+    private final int characteristics;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private long estimatedSize;
+    /** Size of the next batch when the no. of elements is unknown, which grows arithmetically, as the JDK's does. */
+    private int unknownSizeBatchSize;
+
+    BatchSpliterator(Iterator<T> iterator, long estimatedSize, boolean exactSize, int characteristics,
+        int minBatchSize, int maxBatchSize) {
+      this.iterator = iterator;
+      this.estimatedSize = estimatedSize;
+      this.exactSize = exactSize;
+      this.characteristics = characteristics;
+      this.minBatchSize = minBatchSize;
+      this.maxBatchSize = maxBatchSize;
+      this.unknownSizeBatchSize = minBatchSize;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (!this.iterator.hasNext()) {
+        return false;
+      }
+      action.accept(this.iterator.next());
+      decrementSize(1);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      this.iterator.forEachRemaining(action);
+      this.estimatedSize = 0;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      if (!this.iterator.hasNext() || this.estimatedSize <= 1) {
+        return null;
+      }
+      final int batchSize;
+      if (this.estimatedSize == Long.MAX_VALUE) {
+        batchSize = this.unknownSizeBatchSize;
+        this.unknownSizeBatchSize = (int) Math.min(this.maxBatchSize, (long) batchSize + this.minBatchSize);
+      } else {
+        batchSize = (int) Math.max(this.minBatchSize, Math.min(this.maxBatchSize, this.estimatedSize / 2));
+      }
+      final Object[] batch = new Object[batchSize];
+      int n = 0;
+      while (n < batchSize && this.iterator.hasNext()) {
+        batch[n++] = this.iterator.next();
+      }
+      decrementSize(n);
+      // The batch is exactly sized, so its own spliterator can be split in balanced halves
+      return Spliterators.spliterator(batch, 0, n, this.characteristics & ~(SIZED | SUBSIZED));
+    }
+
+    private void decrementSize(long n) {
+      if (this.estimatedSize != Long.MAX_VALUE) {
+        this.estimatedSize = Math.max(0, this.estimatedSize - n);
+      }
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+      return this.exactSize ? this.characteristics | SIZED : this.characteristics & ~SIZED;
+    }
+  }
+}
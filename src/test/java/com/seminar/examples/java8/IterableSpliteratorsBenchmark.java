@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the parallel speedup of streaming Iterables of 1M+ elements using the default
+ * {@link Iterable#spliterator()}, compared with the spliterators created by {@link IterableSpliterators}. Compare the
+ * sequential and parallel scores of each to determine the speedup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IterableSpliteratorsBenchmark {
+
+  @Param({ "1000000", "4000000" })
+  int size;
+
+  @Param({ "false", "true" })
+  boolean parallel;
+
+  /** A (non-Collection) Iterable, as exposed by an API which only returns an Iterable. */
+  private Iterable<Integer> iterable;
+  private LinkedList<Integer> linkedList;
+
+  @Setup
+  public void setUp() {
+    final List<Integer> list = new ArrayList<>(this.size);
+    for (int i = 0; i < this.size; i++) {
+      list.add(i);
+    }
+    this.iterable = list::iterator;
+    this.linkedList = new LinkedList<>(list);
+  }
+
+  @Benchmark
+  public long iterableDefaultSpliterator() {
+    return StreamSupport.stream(this.iterable.spliterator(), this.parallel).mapToLong(this::work).sum();
+  }
+
+  @Benchmark
+  public long iterableSizeHintSpliterator() {
+    return StreamSupport.stream(IterableSpliterators.spliterator(this.iterable, this.size,
+        IterableSpliterators.DEFAULT_MIN_BATCH_SIZE, IterableSpliterators.DEFAULT_MAX_BATCH_SIZE), this.parallel)
+        .mapToLong(this::work).sum();
+  }
+
+  @Benchmark
+  public long linkedListDefaultSpliterator() {
+    return StreamSupport.stream(((Iterable<Integer>) this.linkedList).spliterator(), this.parallel)
+        .mapToLong(this::work).sum();
+  }
+
+  @Benchmark
+  public long linkedListAdapterSpliterator() {
+    return IterableSpliterators.stream(this.linkedList, this.parallel).mapToLong(this::work).sum();
+  }
+
+  /** Simulates a modest amount of CPU work per element. */
+  private long work(int i) {
+    long x = i;
+    for (int n = 0; n < 20; n++) {
+      x = x * 6364136223846793005L + 1442695040888963407L;
+    }
+    return x >>> 40;
+  }
+}
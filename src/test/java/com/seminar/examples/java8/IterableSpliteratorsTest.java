@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link IterableSpliterators}.
+ */
+public class IterableSpliteratorsTest {
+
+  /**
+   * The equivalent of {@link StreamApiExamplesTest#testCreateStreamFromIterableViaSpliterator()}.
+   */
+  @Test
+  public void testStreamFromIterable() {
+    final List<String> strings = Arrays.asList("a", "b", "c");
+    final Iterable<String> stringsIterable = strings;
+
+    final long count = IterableSpliterators.stream(stringsIterable, false).count();
+
+    assertThat(count, is(Long.valueOf(strings.size())));
+  }
+
+  @Test
+  public void testRandomAccessListIsSplitByIndex() {
+    final List<Integer> list = Arrays.asList(IntStream.range(0, 1000).boxed().toArray(Integer[]::new));
+
+    final Spliterator<Integer> spliterator = IterableSpliterators.spliterator(list);
+    final Spliterator<Integer> prefix = spliterator.trySplit();
+
+    assertThat(spliterator.hasCharacteristics(Spliterator.SUBSIZED), is(true));
+    assertThat(prefix.estimateSize(), is(500L));
+    assertThat(spliterator.estimateSize(), is(500L));
+    assertThat(IterableSpliterators.stream(list, true).collect(Collectors.toList()), is(list));
+  }
+
+  @Test
+  public void testCollectionIsSplitInBalancedBatches() {
+    final List<Integer> expected = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+    final LinkedList<Integer> linkedList = new LinkedList<>(expected);
+
+    final Spliterator<Integer> spliterator = IterableSpliterators.spliterator(linkedList, -1, 16, 1 << 20);
+    final Spliterator<Integer> prefix = spliterator.trySplit();
+
+    assertThat(prefix.estimateSize(), is(50_000L));
+    assertThat(spliterator.estimateSize(), is(50_000L));
+    assertThat(spliterator.hasCharacteristics(Spliterator.SIZED), is(true));
+    assertThat(IterableSpliterators.stream(linkedList, true).collect(Collectors.toList()), is(expected));
+    assertThat(IterableSpliterators.stream(new ArrayDeque<>(expected), true).mapToLong(i -> i).sum(),
+        is(99_999L * 100_000 / 2));
+  }
+
+  @Test
+  public void testCollectionWhichSplitsWellUsesItsOwnSpliterator() {
+    final Set<Integer> hashSet = new HashSet<>(IntStream.range(0, 10_000).boxed().collect(Collectors.toList()));
+    final TreeSet<Integer> treeSet = new TreeSet<>(hashSet);
+
+    assertThat(IterableSpliterators.spliterator(hashSet).getClass() == hashSet.spliterator().getClass(), is(true));
+    assertThat(IterableSpliterators.spliterator(treeSet).getClass() == treeSet.spliterator().getClass(), is(true));
+    assertThat(IterableSpliterators.stream(treeSet, true).sorted().collect(Collectors.toList()),
+        is(new ArrayList<>(treeSet)));
+  }
+
+  @Test
+  public void testSortedCollectionCopiedInBatchesIsNotSorted() {
+    final List<Integer> expected = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+    // A sorted set whose spliterator is the default, over its iterator
+    final TreeSet<Integer> sortedSet = new TreeSet<Integer>(expected) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public Spliterator<Integer> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED);
+      }
+    };
+
+    final Spliterator<Integer> spliterator = IterableSpliterators.spliterator(sortedSet);
+
+    assertThat(spliterator.hasCharacteristics(Spliterator.SORTED), is(false));
+    assertThat(IterableSpliterators.stream(sortedSet, true).sorted().collect(Collectors.toList()), is(expected));
+  }
+
+  @Test
+  public void testIterableWithSizeHint() {
+    final List<Integer> expected = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+    // An Iterable which isn't a Collection
+    final Iterable<Integer> iterable = () -> expected.iterator();
+
+    final Spliterator<Integer> spliterator = IterableSpliterators.spliterator(iterable, 10_000, 16, 1024);
+    final Spliterator<Integer> prefix = spliterator.trySplit();
+
+    assertThat(prefix.estimateSize(), is(1024L));
+    assertThat(spliterator.estimateSize(), is(10_000L - 1024));
+    assertThat(spliterator.hasCharacteristics(Spliterator.SIZED), is(false));
+    assertThat(IterableSpliterators.stream(iterable, true).collect(Collectors.toList()), is(expected));
+  }
+
+  @Test
+  public void testIterableOfUnknownSizeGrowsBatches() {
+    final List<Integer> expected = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+    final Iterable<Integer> iterable = () -> expected.iterator();
+
+    final Spliterator<Integer> spliterator = IterableSpliterators.spliterator(iterable, -1, 100, 1000);
+
+    assertThat(spliterator.trySplit().estimateSize(), is(100L));
+    assertThat(spliterator.trySplit().estimateSize(), is(200L));
+    assertThat(spliterator.estimateSize(), is(Long.MAX_VALUE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBatchSizes() {
+    IterableSpliterators.spliterator(Arrays.asList("a"), -1, 10, 5);
+  }
+}
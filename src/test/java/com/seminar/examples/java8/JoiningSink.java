@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+/**
+ * A sink which joins a stream of elements, like {@link java.util.stream.Collectors#joining(CharSequence, CharSequence,
+ * CharSequence)}, but writes the prefix, each element, the delimiters and the suffix straight to an {@link Appendable}
+ * (e.g. a {@link java.io.Writer}) or a channel, rather than building the joined String in memory (see
+ * {@link StreamApiExamplesTest#testCollectJoining()}).
+ * <p>
+ * Each element is written by an {@link ElementFormatter}, which appends its parts to the output, so no intermediate
+ * String is created per element either, e.g. {@code FieldError::appendTo}, which appends "Field [name] message" (see
+ * {@link StreamApiExamplesTest.FieldError#appendTo(Appendable)}).
+ * <p>
+ * The sink is a {@link Consumer}, for use with {@link java.util.stream.Stream#forEach} on a sequential stream, or
+ * {@link java.util.stream.Stream#forEachOrdered} on a parallel stream. The {@link #finish()} method writes the suffix.
+ * It isn't thread-safe. There's deliberately no equivalent {@link java.util.stream.Collector}, as a collector's
+ * containers are filled concurrently by a parallel stream, so would each have to buffer their elements in memory. {@link IOException}s are rethrown as {@link UncheckedIOException}s.
+ *
+ * @param <T> The type of element.
+ */
+final class JoiningSink<T> implements Consumer<T>, Closeable {
+
+  private static final int CHANNEL_BUFFER_SIZE = 64 * 1024;
+
+  private final Appendable out;
+  private final CharSequence delimiter;
+  private final CharSequence suffix;
+  private final ElementFormatter<? super T> formatter;
+  private boolean empty = true;
+  private boolean finished;
+
+  private JoiningSink(Appendable out, CharSequence delimiter, CharSequence prefix, CharSequence suffix,
+      ElementFormatter<? super T> formatter) {
+    this.out = out;
+    this.delimiter = delimiter;
+    this.suffix = suffix;
+    this.formatter = formatter;
+    append(prefix);
+  }
+
+  /**
+   * @param out The output, e.g. a {@link java.io.Writer}, to which the prefix is written immediately.
+   * @param delimiter The delimiter written between each element.
+   * @param prefix The prefix written before the first element.
+   * @param suffix The suffix written after the last element.
+   * @param formatter Writes an element to the output.
+   * @param <T> The type of element.
+   * @return A new sink.
+   */
+  static <T> JoiningSink<T> to(Appendable out, CharSequence delimiter, CharSequence prefix, CharSequence suffix,
+      ElementFormatter<? super T> formatter) {
+    return new JoiningSink<>(out, delimiter, prefix, suffix, formatter);
+  }
+
+  /**
+   * @param channel The channel, e.g. a {@link java.nio.channels.FileChannel}, to which the output is written via a
+   * buffer, which is flushed by {@link #finish()}. Closing the sink closes the channel.
+   * @param charset The charset used to encode the output.
+   * @param delimiter The delimiter written between each element.
+   * @param prefix The prefix written before the first element.
+   * @param suffix The suffix written after the last element.
+   * @param formatter Writes an element to the output.
+   * @param <T> The type of element.
+   * @return A new sink.
+   */
+  static <T> JoiningSink<T> to(WritableByteChannel channel, Charset charset, CharSequence delimiter,
+      CharSequence prefix, CharSequence suffix, ElementFormatter<? super T> formatter) {
+    return new JoiningSink<>(Channels.newWriter(channel, charset.newEncoder(), CHANNEL_BUFFER_SIZE), delimiter, prefix,
+        suffix, formatter);
+  }
+
+  @Override
+  public void accept(T t) {
+    if (this.finished) {
+      throw new IllegalStateException("Sink is finished");
+    }
+    if (!this.empty) {
+      append(this.delimiter);
+    }
+    this.empty = false;
+    try {
+      this.formatter.format(t, this.out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes the suffix, if it hasn't already been written, and flushes the output if it's {@link Flushable}.
+   */
+  void finish() {
+    if (!this.finished) {
+      this.finished = true;
+      append(this.suffix);
+      if (this.out instanceof Flushable) {
+        try {
+          ((Flushable) this.out).flush();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Finishes the sink, and closes the output if it's {@link Closeable}.
+   */
+  @Override
+  public void close() throws IOException {
+    finish();
+    if (this.out instanceof Closeable) {
+      ((Closeable) this.out).close();
+    }
+  }
+
+  private void append(CharSequence chars) {
+    try {
+      this.out.append(chars);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes an element to an output.
+   *
+   * @param <T> The type of element.
+   */
+  @FunctionalInterface
+  interface ElementFormatter<T> {
+    void format(T element, Appendable out) throws IOException;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.FieldError;
+
+/**
+ * Tests for {@link JoiningSink}.
+ */
+public class JoiningSinkTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testForEach() {
+    final List<FieldError> fieldErrors = fieldErrors(1_000);
+    final StringBuilder joined = new StringBuilder();
+    final JoiningSink<FieldError> sink = JoiningSink.to(joined, ", ", "[", "]", FieldError::appendTo);
+
+    fieldErrors.stream().forEach(sink);
+    sink.finish();
+
+    assertThat(joined.toString(), is(fieldErrors.stream()
+        .map(e -> "Field [" + e.getFieldName() + "] " + e.getMessage()).collect(Collectors.joining(", ", "[", "]"))));
+  }
+
+  @Test
+  public void testEmptyStream() {
+    final StringWriter out = new StringWriter();
+    final JoiningSink<FieldError> sink = JoiningSink.to(out, ", ", "[", "]", FieldError::appendTo);
+
+    Stream.<FieldError>empty().forEach(sink);
+    sink.finish();
+
+    assertThat(out.toString(), is("[]"));
+  }
+
+  @Test
+  public void testForEachOrderedInParallel() {
+    final StringBuilder out = new StringBuilder();
+    final JoiningSink<Integer> sink = JoiningSink.to(out, ",", "", "", (i, o) -> o.append(Integer.toString(i)));
+
+    IntStream.range(0, 100_000).parallel().boxed().forEachOrdered(sink);
+    sink.finish();
+
+    assertThat(out.toString(), is(IntStream.range(0, 100_000).mapToObj(Integer::toString)
+        .collect(Collectors.joining(","))));
+  }
+
+  @Test
+  public void testChannel() throws IOException {
+    final List<FieldError> fieldErrors = fieldErrors(10_000);
+    final Path path = this.folder.newFile().toPath();
+
+    try (JoiningSink<FieldError> sink = JoiningSink.to(FileChannel.open(path, StandardOpenOption.WRITE),
+        StandardCharsets.UTF_8, System.lineSeparator(), "Errors:" + System.lineSeparator(), System.lineSeparator(),
+        FieldError::appendTo)) {
+      fieldErrors.forEach(sink);
+    }
+
+    assertThat(new String(Files.readAllBytes(path), StandardCharsets.UTF_8), is(fieldErrors.stream()
+        .map(e -> "Field [" + e.getFieldName() + "] " + e.getMessage())
+        .collect(Collectors.joining(System.lineSeparator(), "Errors:" + System.lineSeparator(),
+            System.lineSeparator()))));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAcceptAfterFinish() {
+    final JoiningSink<FieldError> sink = JoiningSink.to(new StringBuilder(), ",", "", "", FieldError::appendTo);
+    sink.finish();
+
+    sink.accept(new FieldError("firstName", "invalid first name"));
+  }
+
+  private static List<FieldError> fieldErrors(int size) {
+    return IntStream.range(0, size).mapToObj(i -> new FieldError("field" + i, "invalid value é " + i))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Stable sorts of a list by a primitive int or long key of its elements, e.g. a student's id, date of birth (epoch
+ * day) or fee (in cents), as faster alternatives to {@link List#sort} or {@code sorted(comparator)} with a comparator
+ * which decodes the key of both elements on every comparison (see {@link StreamApiExamplesTest#testSorted()}).
+ * <p>
+ * Each element's key is extracted only once. The keys are offset from the min key, and packed with the element's index
+ * in the list into a long, with the index in the low bits. The packed longs are then sorted, either sequentially using
+ * an LSD radix sort of the key bits (8 bits per pass, skipping passes in which every key has the same digit), or in
+ * parallel using {@link Arrays#parallelSort(long[])}. As the index breaks ties, both sorts are stable. Finally, the
+ * list is permuted into the sorted order of the indexes.
+ * <p>
+ * If the range of the keys is too wide to be packed with an index (only possible for long keys), the keys and indexes
+ * are instead radix sorted (sequentially) as separate arrays.
+ */
+final class KeySort {
+
+  private static final int RADIX_BITS = 8;
+  private static final int RADIX = 1 << RADIX_BITS;
+
+  private KeySort() {
+  }
+
+  /**
+   * @param list The list to sort in place, by ascending key.
+   * @param keyFunction A function which returns an element's key, e.g. {@code Student::getId}.
+   * @param parallel True if the sort should be performed in parallel.
+   * @param <T> The type of element.
+   */
+  static <T> void sortByIntKey(List<T> list, ToIntFunction<? super T> keyFunction, boolean parallel) {
+    sortByLongKey(list, t -> keyFunction.applyAsInt(t), parallel);
+  }
+
+  /**
+   * @param list The list to sort in place, by ascending key.
+   * @param keyFunction A function which returns an element's key, e.g. {@code s -> s.getDob().toEpochDay()}.
+   * @param parallel True if the sort should be performed in parallel.
+   * @param <T> The type of element.
+   */
+  static <T> void sortByLongKey(List<T> list, ToLongFunction<? super T> keyFunction, boolean parallel) {
+    final Object[] elements = list.toArray();
+    final int n = elements.length;
+    if (n < 2) {
+      return;
+    }
+    final long[] keys = new long[n];
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < n; i++) {
+      @SuppressWarnings("unchecked")
+      final long key = keyFunction.applyAsLong((T) elements[i]);
+      keys[i] = key;
+      min = Math.min(min, key);
+      max = Math.max(max, key);
+    }
+
+    permute(list, elements, sortedIndexes(keys, min, max, parallel));
+  }
+
+  /**
+   * Replaces the elements of a list with the supplied elements, in the order of the supplied indexes.
+   *
+   * @param list The list.
+   * @param elements The elements of the list, in their original order, e.g. from {@link List#toArray()}.
+   * @param sortedIndexes The indexes of the elements, in their new order.
+   * @param <T> The type of element.
+   */
+  static <T> void permute(List<T> list, Object[] elements, int[] sortedIndexes) {
+    final ListIterator<T> iterator = list.listIterator();
+    for (int index : sortedIndexes) {
+      iterator.next();
+      @SuppressWarnings("unchecked")
+      final T element = (T) elements[index];
+      iterator.set(element);
+    }
+  }
+
+  /**
+   * @param keys The keys to sort.
+   * @param parallel True if the sort should be performed in parallel.
+   * @return The indexes of the supplied keys, in ascending (stable) order of key.
+   */
+  static int[] sortedIndexes(long[] keys, boolean parallel) {
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (long key : keys) {
+      min = Math.min(min, key);
+      max = Math.max(max, key);
+    }
+    return sortedIndexes(keys, min, max, parallel);
+  }
+
+  private static int[] sortedIndexes(long[] keys, long min, long max, boolean parallel) {
+    final int n = keys.length;
+    if (n < 2) {
+      return n == 0 ? new int[0] : new int[] { 0 };
+    }
+    final int indexBits = Integer.SIZE - Integer.numberOfLeadingZeros(n - 1);
+    // The range of the keys, as an unsigned long
+    final long range = max - min;
+    if (range >>> (Long.SIZE - indexBits) == 0) {
+      final long[] packed = new long[n];
+      for (int i = 0; i < n; i++) {
+        packed[i] = (keys[i] - min) << indexBits | i;
+      }
+      if (parallel) {
+        // The packed keys may use the sign bit, so flip it for the signed sort to order them as unsigned
+        for (int i = 0; i < n; i++) {
+          packed[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.parallelSort(packed);
+      } else {
+        radixSort(packed, indexBits, Long.SIZE - Long.numberOfLeadingZeros(range) + indexBits);
+      }
+      final long indexMask = (1L << indexBits) - 1;
+      final int[] sortedIndexes = new int[n];
+      for (int i = 0; i < n; i++) {
+        sortedIndexes[i] = (int) (packed[i] & indexMask);
+      }
+      return sortedIndexes;
+    }
+    return radixSort(keys);
+  }
+
+  /**
+   * A stable LSD radix sort of a range of the bits of each value.
+   *
+   * @param values The values to sort, as unsigned longs.
+   * @param fromBit The lowest bit of the range of bits to sort by.
+   * @param toBit The exclusive highest bit of the range of bits to sort by. All higher bits must be zero.
+   */
+  private static void radixSort(long[] values, int fromBit, int toBit) {
+    long[] from = values;
+    long[] to = new long[values.length];
+    final int[] counts = new int[RADIX];
+    for (int shift = fromBit; shift < toBit; shift += RADIX_BITS) {
+      Arrays.fill(counts, 0);
+      for (long value : from) {
+        counts[(int) (value >>> shift) & (RADIX - 1)]++;
+      }
+      if (toStarts(counts, from.length)) {
+        continue;
+      }
+      for (long value : from) {
+        to[counts[(int) (value >>> shift) & (RADIX - 1)]++] = value;
+      }
+      final long[] swap = from;
+      from = to;
+      to = swap;
+    }
+    if (from != values) {
+      System.arraycopy(from, 0, values, 0, values.length);
+    }
+  }
+
+  /**
+   * A stable LSD radix sort of the indexes of the supplied (signed) keys, for keys whose range is too wide to pack.
+   *
+   * @return The indexes of the keys, in ascending order of key.
+   */
+  private static int[] radixSort(long[] keys) {
+    final int n = keys.length;
+    long[] fromKeys = new long[n];
+    int[] fromIndexes = new int[n];
+    for (int i = 0; i < n; i++) {
+      // Flip the sign bit, so that signed keys sort correctly as unsigned
+      fromKeys[i] = keys[i] ^ Long.MIN_VALUE;
+      fromIndexes[i] = i;
+    }
+    long[] toKeys = new long[n];
+    int[] toIndexes = new int[n];
+    final int[] counts = new int[RADIX];
+    for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+      Arrays.fill(counts, 0);
+      for (long key : fromKeys) {
+        counts[(int) (key >>> shift) & (RADIX - 1)]++;
+      }
+      if (toStarts(counts, n)) {
+        continue;
+      }
+      for (int i = 0; i < n; i++) {
+        final int to = counts[(int) (fromKeys[i] >>> shift) & (RADIX - 1)]++;
+        toKeys[to] = fromKeys[i];
+        toIndexes[to] = fromIndexes[i];
+      }
+      final long[] swapKeys = fromKeys;
+      fromKeys = toKeys;
+      toKeys = swapKeys;
+      final int[] swapIndexes = fromIndexes;
+      fromIndexes = toIndexes;
+      toIndexes = swapIndexes;
+    }
+    return fromIndexes;
+  }
+
+  /**
+   * Converts the counts of each digit into the start position of each digit in the output, unless every value has the
+   * same digit, in which case the pass can be skipped.
+   *
+   * @return True if the pass can be skipped.
+   */
+  private static boolean toStarts(int[] counts, int n) {
+    int start = 0;
+    for (int digit = 0; digit < RADIX; digit++) {
+      final int count = counts[digit];
+      if (count == n) {
+        return true;
+      }
+      counts[digit] = start;
+      start += count;
+    }
+    return false;
+  }
+}
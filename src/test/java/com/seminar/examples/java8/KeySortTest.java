@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Tests for {@link KeySort}, which check that each sort is stable by comparing it with {@link List#sort}.
+ */
+public class KeySortTest {
+
+  @Test
+  public void testSortByIntKey() {
+    for (boolean parallel : new boolean[] { false, true }) {
+      final List<long[]> pairs = randomPairs(100_000, -500, 1000);
+      final List<long[]> expected = new ArrayList<>(pairs);
+      expected.sort(Comparator.comparingLong(pair -> pair[0]));
+
+      KeySort.sortByIntKey(pairs, pair -> (int) pair[0], parallel);
+
+      assertThat(pairs, is(expected));
+    }
+  }
+
+  @Test
+  public void testSortByLongKey() {
+    for (boolean parallel : new boolean[] { false, true }) {
+      final List<long[]> pairs = randomPairs(100_000, -(1L << 40), 1L << 41);
+      final List<long[]> expected = new ArrayList<>(pairs);
+      expected.sort(Comparator.comparingLong(pair -> pair[0]));
+
+      KeySort.sortByLongKey(pairs, pair -> pair[0], parallel);
+
+      assertThat(pairs, is(expected));
+    }
+  }
+
+  @Test
+  public void testSortByLongKeyWithFullRange() {
+    final List<long[]> pairs = new LinkedList<>(randomPairs(10_000, 0, 16));
+    pairs.forEach(pair -> pair[0] = pair[0] < 4 ? Long.MIN_VALUE + pair[0] : pair[0] > 12 ? Long.MAX_VALUE - pair[0]
+        : pair[0]);
+    final List<long[]> expected = new ArrayList<>(pairs);
+    expected.sort(Comparator.comparingLong(pair -> pair[0]));
+
+    KeySort.sortByLongKey(pairs, pair -> pair[0], true);
+
+    assertThat(pairs, is(expected));
+  }
+
+  @Test
+  public void testSortByLongKeyWithRangeUsingTheSignBitWhenPacked() {
+    assertThat(KeySort.sortedIndexes(new long[] { 1L << 62, 0 }, true), is(new int[] { 1, 0 }));
+
+    for (boolean parallel : new boolean[] { false, true }) {
+      // A key range over 2^46 which, packed with a 17 bit index, sets the sign bit of the packed keys
+      final List<long[]> pairs = randomPairs(100_000, -(1L << 46), 3L << 45);
+      final List<long[]> expected = new ArrayList<>(pairs);
+      expected.sort(Comparator.comparingLong(pair -> pair[0]));
+
+      KeySort.sortByLongKey(pairs, pair -> pair[0], parallel);
+
+      assertThat(pairs, is(expected));
+    }
+  }
+
+  @Test
+  public void testSortStudents() {
+    final Student s1 = new Student(LocalDate.of(1974, Month.JUNE, 21), "joe.bloggs@test.net");
+    final Student s2 = new Student(LocalDate.of(1980, Month.JANUARY, 2), "jane.bloggs@test.net");
+    final Student s3 = new Student(LocalDate.of(1976, Month.AUGUST, 7), "jim.bloggs@test.net");
+    final Student s4 = new Student(LocalDate.of(1973, Month.JULY, 12), "nellie.bloggs@test.net");
+    final List<Student> students = new ArrayList<>();
+    students.add(s2);
+    students.add(s1);
+    students.add(s3);
+    students.add(s4);
+
+    KeySort.sortByIntKey(students, Student::getId, false);
+    assertThat(students, contains(s1, s2, s3, s4));
+
+    KeySort.sortByLongKey(students, s -> s.getDob().toEpochDay(), false);
+    assertThat(students, contains(s4, s1, s3, s2));
+  }
+
+  /**
+   * @return Pairs of a random key in the supplied range, and a unique sequence no., so that stability can be checked.
+   */
+  private static List<long[]> randomPairs(int n, long minKey, long keyRange) {
+    final Random random = new Random(n);
+    final List<long[]> pairs = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      pairs.add(new long[] { minKey + (long) (random.nextDouble() * keyRange), i });
+    }
+    return pairs;
+  }
+}
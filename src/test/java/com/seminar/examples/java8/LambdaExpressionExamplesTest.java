@@ -274,9 +274,15 @@ public class LambdaExpressionExamplesTest {
     List<Invoice> invoices5 = new ArrayList<>(unsortedReadOnlyInvoices);
     invoices5.sort(Comparator.comparing(Invoice::getAmount));
     assertThat(invoices5, is(expectedInvoicesSortedByAmount));
+
+    // For a large list, each amount can instead be normalised once to a long sort key, rather than comparing (and
+    // aligning the scale of) BigDecimals on every comparison, and the keys sorted in parallel
+    List<Invoice> invoices6 = new ArrayList<>(unsortedReadOnlyInvoices);
+    InvoiceSort.sortByAmount(invoices6, true);
+    assertThat(invoices6, is(expectedInvoicesSortedByAmount));
   }
 
-  class Invoice {
+  static class Invoice {
     private final int id;
     private final BigDecimal amount;
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A bulk transform of the values of a map, e.g. of a {@code Map<String, FieldError>} to a
+ * {@code ConcurrentMap<String, String>} of messages, as a faster alternative to streaming the map's entries and
+ * collecting them with {@link java.util.stream.Collectors#toConcurrentMap} (see
+ * {@link StreamApiExamplesTest#testCollectConvertAMap()}).
+ * <p>
+ * The target map is presized from the size of the source map, so it's never resized. Entries with a null value (or
+ * whose value transforms to null) are skipped in the same pass as the transform, without a stream or filter.
+ * <p>
+ * A {@link ConcurrentHashMap} source is transformed using its {@code forEach(parallelismThreshold, action)}, which
+ * processes the source's bins in parallel (in the common fork-join pool) once the source has at least the supplied
+ * parallelism threshold of entries. Any other source is transformed sequentially, using
+ * {@link Map#forEach(java.util.function.BiConsumer)}, which for e.g. a {@link java.util.HashMap} walks its table
+ * directly, without an iterator.
+ */
+final class MapTransform {
+
+  private MapTransform() {
+  }
+
+  /**
+   * @param source The map to transform.
+   * @param valueFunction A function which transforms a (non-null) value, e.g. {@code FieldError::getMessage}.
+   * @param parallelismThreshold The min no. of entries of a {@link ConcurrentHashMap} source for the transform to be
+   * performed in parallel, e.g. {@code Long.MAX_VALUE} to always transform sequentially, or 1 for max parallelism.
+   * @param <K> The type of key.
+   * @param <V> The type of source value.
+   * @param <R> The type of target value.
+   * @return A new map of each key of the source map with a non-null value to its transformed value, unless null.
+   */
+  static <K, V, R> ConcurrentHashMap<K, R> transformValues(Map<K, V> source,
+      Function<? super V, ? extends R> valueFunction, long parallelismThreshold) {
+    // The constructor allows for the load factor, so the table is large enough for every entry of the source
+    final ConcurrentHashMap<K, R> target = new ConcurrentHashMap<>(Math.max(source.size(), 1));
+    if (source instanceof ConcurrentHashMap) {
+      // A ConcurrentHashMap can't hold null values, but the transformed value can still be null
+      ((ConcurrentHashMap<K, V>) source).forEach(parallelismThreshold, (key, value) -> {
+        final R transformed = valueFunction.apply(value);
+        if (transformed != null) {
+          target.put(key, transformed);
+        }
+      });
+    } else {
+      source.forEach((key, value) -> {
+        if (value != null) {
+          final R transformed = valueFunction.apply(value);
+          if (transformed != null) {
+            target.put(key, transformed);
+          }
+        }
+      });
+    }
+    return target;
+  }
+}
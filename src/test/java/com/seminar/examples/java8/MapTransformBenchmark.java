@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.FieldError;
+
+/**
+ * JMH benchmark of {@link MapTransform#transformValues} against the stream and
+ * {@link Collectors#toConcurrentMap} conversion of {@link StreamApiExamplesTest#testCollectConvertAMap()}, over a range
+ * of no. of field errors, sequentially and in parallel, from a {@link HashMap} or a {@link ConcurrentHashMap}.
+ * <p>
+ * Every 16th field name is mapped to a null field error in the {@link HashMap} (a {@link ConcurrentHashMap} can't hold
+ * nulls). A {@link HashMap} is always transformed sequentially by {@link MapTransform#transformValues}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class MapTransformBenchmark {
+
+  /** The parallelism threshold of a ConcurrentHashMap bulk operation, large enough to split into a few tasks/core. */
+  private static final long PARALLELISM_THRESHOLD = 1024;
+
+  /**
+   * The field errors.
+   */
+  @State(Scope.Benchmark)
+  public static class FieldErrors {
+    @Param({ "1000", "100000", "10000000" })
+    int size;
+
+    @Param({ "false", "true" })
+    boolean concurrent;
+
+    Map<String, FieldError> fieldErrors;
+
+    @Setup
+    public void setUp() {
+      this.fieldErrors = this.concurrent ? new ConcurrentHashMap<>(this.size) : new HashMap<>(this.size * 2);
+      for (int i = 0; i < this.size; i++) {
+        final String fieldName = "field" + i;
+        if (this.concurrent || i % 16 != 0) {
+          this.fieldErrors.put(fieldName, new FieldError(fieldName, "invalid value " + i));
+        } else {
+          this.fieldErrors.put(fieldName, null);
+        }
+      }
+    }
+  }
+
+  /**
+   * How a conversion is executed.
+   */
+  @State(Scope.Benchmark)
+  public static class Execution {
+    @Param({ "false", "true" })
+    boolean parallel;
+  }
+
+  @Benchmark
+  public ConcurrentMap<String, String> collector(FieldErrors f, Execution e) {
+    return (e.parallel ? f.fieldErrors.entrySet().parallelStream() : f.fieldErrors.entrySet().stream())
+        .filter(entry -> entry.getValue() != null)
+        .collect(Collectors.toConcurrentMap(entry -> entry.getKey(), entry -> entry.getValue().getMessage()));
+  }
+
+  @Benchmark
+  public ConcurrentMap<String, String> transformValues(FieldErrors f, Execution e) {
+    return MapTransform.transformValues(f.fieldErrors, FieldError::getMessage,
+        e.parallel ? PARALLELISM_THRESHOLD : Long.MAX_VALUE);
+  }
+}
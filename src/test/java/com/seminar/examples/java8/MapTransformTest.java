@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.FieldError;
+
+/**
+ * Tests for {@link MapTransform}.
+ */
+public class MapTransformTest {
+
+  @Test
+  public void testTransformValuesSkipsNulls() {
+    final Map<String, FieldError> fieldErrors = new HashMap<>();
+    fieldErrors.put("firstName", new FieldError("firstName", "invalid first name"));
+    fieldErrors.put("invalid", null);
+    fieldErrors.put("lastName", new FieldError("lastName", null));
+
+    final Map<String, String> messages = MapTransform.transformValues(fieldErrors, FieldError::getMessage, 1);
+
+    assertThat(messages.size(), is(1));
+    assertThat(messages.get("firstName"), is("invalid first name"));
+  }
+
+  @Test
+  public void testTransformValuesInParallel() {
+    final ConcurrentHashMap<String, FieldError> fieldErrors = new ConcurrentHashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      fieldErrors.put("field" + i, new FieldError("field" + i, "invalid value " + i));
+    }
+
+    final Map<String, String> messages = MapTransform.transformValues(fieldErrors, FieldError::getMessage, 1);
+
+    assertThat(messages, is(fieldErrors.entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getMessage()))));
+  }
+
+  @Test
+  public void testTransformEmptyMap() {
+    assertThat(MapTransform.transformValues(new HashMap<String, FieldError>(), FieldError::getMessage, 1).isEmpty(),
+        is(true));
+  }
+}
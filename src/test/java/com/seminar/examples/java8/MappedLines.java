@@ -0,0 +1,221 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A source of a stream of the lines in a UTF-8 encoded file, which, unlike {@link java.io.BufferedReader#lines()},
+ * can be efficiently processed in parallel.
+ * <p>
+ * The file is memory-mapped (using {@link FileChannel#map}) in windows, rather than read onto the heap. The stream's
+ * {@link Spliterator} splits the file into two balanced chunks of bytes, at the first line terminator after the
+ * midpoint, so each chunk contains only whole lines. Each chunk is then traversed independently, and lines are only
+ * decoded from UTF-8 as they're consumed.
+ * <p>
+ * As for BufferedReader, lines are terminated by a line feed ('\n') or a carriage return followed by a line feed, and
+ * the terminator is not included in the line. A lone carriage return is not treated as a line terminator.
+ * <p>
+ * The no. of lines isn't known without scanning the file, so the spliterator isn't SIZED. It reports an estimated size
+ * of the no. of bytes remaining, an upper bound on the no. of lines.
+ */
+final class MappedLines {
+
+  /** Default max size of a region of the file which is mapped at once. */
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  /** Default no. of bytes below which a chunk of the file isn't split any further. */
+  private static final int MIN_SPLIT_SIZE = 256 * 1024;
+
+  private static final byte LF = '\n';
+  private static final byte CR = '\r';
+
+  private MappedLines() {
+  }
+
+  /**
+   * @param path The path of a UTF-8 encoded file.
+   * @return A lazily populated stream of the lines in the file. The stream should be closed after use (e.g. using a
+   * try-with-resources statement), to close the file.
+   * @throws IOException If the file can't be opened.
+   */
+  static Stream<String> lines(Path path) throws IOException {
+    return lines(path, WINDOW_SIZE, MIN_SPLIT_SIZE);
+  }
+
+  static Stream<String> lines(Path path, int windowSize, int minSplitSize) throws IOException {
+    final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      final LineSpliterator spliterator = new LineSpliterator(channel, 0, channel.size(), windowSize, minSplitSize);
+      return StreamSupport.stream(spliterator, false).onClose(() -> {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * A spliterator over the lines in a range of bytes in a file. The range always starts at the start of a line, and ends
+   * at the end of a line (or the file).
+   */
+  private static final class LineSpliterator implements Spliterator<String> {
+    private final FileChannel channel;
+    private final int windowSize;
+    private final int minSplitSize;
+    /** The position in the file of the start of the next line. */
+    private long position;
+    /** The exclusive end of the range of bytes. */
+    private final long end;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private byte[] lineBytes = new byte[128];
+
+    LineSpliterator(FileChannel channel, long position, long end, int windowSize, int minSplitSize) {
+      this.channel = channel;
+      this.position = position;
+      this.end = end;
+      this.windowSize = windowSize;
+      this.minSplitSize = minSplitSize;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+      if (this.position >= this.end) {
+        return false;
+      }
+      action.accept(nextLine());
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super String> action) {
+      while (this.position < this.end) {
+        action.accept(nextLine());
+      }
+    }
+
+    private String nextLine() {
+      int size = this.windowSize;
+      while (true) {
+        mapWindow(size);
+        final int start = (int) (this.position - this.windowStart);
+        final int limit = this.window.limit();
+        for (int i = start; i < limit; i++) {
+          if (this.window.get(i) == LF) {
+            this.position = this.windowStart + i + 1;
+            return decode(start, i);
+          }
+        }
+        if (this.windowStart + limit >= this.end) {
+          // The last line of the file has no terminator
+          this.position = this.end;
+          return decode(start, limit);
+        }
+        // The line continues beyond the window, so remap from the start of the line, growing the window if it's full
+        size = start == 0 ? (int) Math.min(Integer.MAX_VALUE, 2L * size) : size;
+        this.window = null;
+      }
+    }
+
+    private void mapWindow(int size) {
+      if (this.window == null || this.position >= this.windowStart + this.window.limit()) {
+        this.windowStart = this.position;
+        this.window = map(this.position, (int) Math.min(this.end - this.position, size));
+      }
+    }
+
+    private MappedByteBuffer map(long from, int size) {
+      try {
+        return this.channel.map(FileChannel.MapMode.READ_ONLY, from, size);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private String decode(int from, int to) {
+      int length = to - from;
+      if (length > 0 && this.window.get(to - 1) == CR) {
+        length--;
+      }
+      if (length > this.lineBytes.length) {
+        this.lineBytes = Arrays.copyOf(this.lineBytes, Math.max(length, 2 * this.lineBytes.length));
+      }
+      for (int i = 0; i < length; i++) {
+        this.lineBytes[i] = this.window.get(from + i);
+      }
+      return new String(this.lineBytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+      final long remaining = this.end - this.position;
+      if (remaining < this.minSplitSize || this.window != null) {
+        return null;
+      }
+      final long split = nextLineStart(this.position + remaining / 2);
+      if (split >= this.end) {
+        return null;
+      }
+      final LineSpliterator prefix = new LineSpliterator(this.channel, this.position, split, this.windowSize,
+          this.minSplitSize);
+      this.position = split;
+      return prefix;
+    }
+
+    /**
+     * @return The position of the start of the first line which starts after the supplied position, or the end.
+     */
+    private long nextLineStart(long from) {
+      final int probeSize = 8192;
+      for (long probeStart = from; probeStart < this.end; probeStart += probeSize) {
+        final MappedByteBuffer probe = map(probeStart, (int) Math.min(this.end - probeStart, probeSize));
+        for (int i = 0; i < probe.limit(); i++) {
+          if (probe.get(i) == LF) {
+            return probeStart + i + 1;
+          }
+        }
+      }
+      return this.end;
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.end - this.position;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE;
+    }
+  }
+}
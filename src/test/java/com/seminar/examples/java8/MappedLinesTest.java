@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link MappedLines} streams the same lines as {@link BufferedReader#lines()}, sequentially and in
+ * parallel.
+ */
+public class MappedLinesTest {
+
+  /**
+   * The memory-mapped equivalent of {@link StreamApiExamplesTest#testCreateStreamFromBufferedReader()}.
+   *
+   * @throws Exception if an unexpected error occurs.
+   */
+  @Test
+  public void testLines() throws Exception {
+    final String[] phrase = new String[] { "Everything", "comes", "to", "those", "who", "wait." };
+    final Path tempFile = createTempFile();
+    Files.write(tempFile, Arrays.asList(phrase), StandardCharsets.UTF_8);
+
+    try (Stream<String> lines = MappedLines.lines(tempFile)) {
+      assertThat(lines.collect(Collectors.toList()), is(Arrays.asList(phrase)));
+    }
+  }
+
+  @Test
+  public void testLineTerminatorsAndEncoding() throws Exception {
+    final Path tempFile = createTempFile();
+    final String content = "first\r\n\nthird – naïve, 日本\r\n\r\nlast line without terminator";
+    Files.write(tempFile, content.getBytes(StandardCharsets.UTF_8));
+
+    assertThat(mappedLines(tempFile, 8, 4, false), is(bufferedReaderLines(tempFile)));
+    assertThat(mappedLines(tempFile, 8, 4, true), is(bufferedReaderLines(tempFile)));
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    final Path tempFile = createTempFile();
+
+    assertThat(mappedLines(tempFile, 8, 4, true).isEmpty(), is(true));
+  }
+
+  @Test
+  public void testParallelLinesOfLargeFile() throws Exception {
+    final Path tempFile = createTempFile();
+    final List<String> csvLines = new ArrayList<>();
+    for (int i = 0; i < 200_000; i++) {
+      csvLines.add(i + ",student" + i + "@test.net," + (i % 97 == 0 ? "Åland" : "UK"));
+    }
+    Files.write(tempFile, csvLines, StandardCharsets.UTF_8);
+
+    // Small windows and splits, to exercise lines which span windows and many chunks
+    assertThat(mappedLines(tempFile, 4096, 1024, true), is(csvLines));
+    try (Stream<String> lines = MappedLines.lines(tempFile)) {
+      assertThat(lines.parallel().filter(line -> line.endsWith("Åland")).count(), is(200_000L / 97 + 1));
+    }
+  }
+
+  private static List<String> mappedLines(Path path, int windowSize, int minSplitSize, boolean parallel)
+      throws Exception {
+    try (Stream<String> lines = MappedLines.lines(path, windowSize, minSplitSize)) {
+      return (parallel ? lines.parallel() : lines).collect(Collectors.toList());
+    }
+  }
+
+  private static List<String> bufferedReaderLines(Path path) throws Exception {
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return reader.lines().collect(Collectors.toList());
+    }
+  }
+
+  private Path createTempFile() throws Exception {
+    final Path tempFile = Files.createTempFile(this.getClass().getCanonicalName(), ".tmp");
+    tempFile.toFile().deleteOnExit();
+    return tempFile;
+  }
+}
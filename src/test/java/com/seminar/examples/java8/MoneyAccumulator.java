@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * A mutable accumulator for summing monetary amounts, which avoids creating a new {@link BigDecimal} for every amount
+ * added, as happens when summing using {@code Stream.reduce(new BigDecimal("0.00"), BigDecimal::add)}.
+ * <p>
+ * Amounts are accumulated as a long count of the smallest unit of currency (e.g. cents) at a fixed scale of 2. An
+ * amount which has a larger scale, or a running total which would overflow a long, is promoted to a {@link BigDecimal}
+ * remainder, so the total is always exact. The total is the same (including its scale) as that produced by summing the
+ * amounts using BigDecimal, starting from an identity of {@code 0.00}.
+ * <p>
+ * Instances are not thread-safe. For parallel use, accumulate each partition separately and {@link #combine} them, as
+ * done by {@link MoreCollectors#summingMoney(Function)} and {@link #parallelSum(List, Function)}.
+ */
+final class MoneyAccumulator {
+
+  private static final int SCALE = 2;
+
+  /** Max no. of digits in an unscaled amount which is guaranteed to fit in a long. */
+  private static final int MAX_LONG_PRECISION = 18;
+
+  /** No. of elements below which {@link #parallelSum(List, Function)} stops forking. */
+  private static final int PARALLEL_THRESHOLD = 8192;
+
+  private long unscaled;
+  private BigDecimal remainder;
+  private int maxScale = SCALE;
+
+  /**
+   * @param amount The amount to add.
+   * @return This accumulator.
+   */
+  MoneyAccumulator add(BigDecimal amount) {
+    final int scale = amount.scale();
+    if (scale == SCALE && amount.precision() <= MAX_LONG_PRECISION) {
+      addUnscaled(amount.unscaledValue().longValue());
+    } else if (scale >= 0 && scale < SCALE && amount.precision() <= MAX_LONG_PRECISION - SCALE) {
+      addUnscaled(amount.setScale(SCALE).unscaledValue().longValue());
+    } else {
+      this.maxScale = Math.max(this.maxScale, scale);
+      this.remainder = this.remainder == null ? amount : this.remainder.add(amount);
+    }
+    return this;
+  }
+
+  /**
+   * @param cents An amount expressed as a whole number of the smallest unit of currency, e.g. cents.
+   * @return This accumulator.
+   */
+  MoneyAccumulator addUnscaled(long cents) {
+    final long sum = this.unscaled + cents;
+    // Overflow iff both operands have the same sign, and the sign of the result differs (see Math.addExact)
+    if (((this.unscaled ^ sum) & (cents ^ sum)) < 0) {
+      promote();
+      this.unscaled = cents;
+    } else {
+      this.unscaled = sum;
+    }
+    return this;
+  }
+
+  /**
+   * @param other Another accumulator, e.g. for a different partition of the same amounts.
+   * @return This accumulator, having added the total of the other.
+   */
+  MoneyAccumulator combine(MoneyAccumulator other) {
+    addUnscaled(other.unscaled);
+    if (other.remainder != null) {
+      this.remainder = this.remainder == null ? other.remainder : this.remainder.add(other.remainder);
+    }
+    this.maxScale = Math.max(this.maxScale, other.maxScale);
+    return this;
+  }
+
+  /**
+   * @return The exact total of the amounts added so far.
+   */
+  BigDecimal total() {
+    BigDecimal total = BigDecimal.valueOf(this.unscaled, SCALE);
+    if (this.remainder != null) {
+      total = total.add(this.remainder);
+    }
+    // Only ever increases the scale, so never rounds
+    return total.setScale(this.maxScale);
+  }
+
+  private void promote() {
+    final BigDecimal promoted = BigDecimal.valueOf(this.unscaled, SCALE);
+    this.remainder = this.remainder == null ? promoted : this.remainder.add(promoted);
+    this.unscaled = 0;
+  }
+
+  /**
+   * Sums the amounts of a list of elements in parallel, using the common fork-join pool. Each leaf task sums a range of
+   * the list into its own accumulator, and the accumulators are then combined.
+   *
+   * @param elements The elements, e.g. a list of students.
+   * @param amountFunction A function which returns an element's amount, e.g. {@code Student::getFee}.
+   * @param <T> The type of element.
+   * @return The exact total of the elements' amounts.
+   */
+  static <T> BigDecimal parallelSum(List<T> elements, Function<? super T, BigDecimal> amountFunction) {
+    final List<T> list = elements instanceof RandomAccess ? elements : new ArrayList<>(elements);
+    return ForkJoinPool.commonPool().invoke(new SumTask<>(list, amountFunction, 0, list.size())).total();
+  }
+
+  private static final class SumTask<T> extends RecursiveTask<MoneyAccumulator> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<T> elements;
+    private final Function<? super T, BigDecimal> amountFunction;
+    private final int from;
+    private final int to;
+
+    SumTask(List<T> elements, Function<? super T, BigDecimal> amountFunction, int from, int to) {
+      this.elements = elements;
+      this.amountFunction = amountFunction;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected MoneyAccumulator compute() {
+      if (this.to - this.from <= PARALLEL_THRESHOLD) {
+        final MoneyAccumulator accumulator = new MoneyAccumulator();
+        for (int i = this.from; i < this.to; i++) {
+          accumulator.add(this.amountFunction.apply(this.elements.get(i)));
+        }
+        return accumulator;
+      }
+      final int mid = (this.from + this.to) >>> 1;
+      final SumTask<T> left = new SumTask<>(this.elements, this.amountFunction, this.from, mid);
+      left.fork();
+      final MoneyAccumulator right = new SumTask<>(this.elements, this.amountFunction, mid, this.to).compute();
+      return left.join().combine(right);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Tests that {@link MoneyAccumulator} totals match those produced by summing {@link BigDecimal} exactly.
+ */
+public class MoneyAccumulatorTest {
+
+  @Test
+  public void testTotalMatchesBigDecimalReduce() {
+    final List<BigDecimal> amounts = Arrays.asList(new BigDecimal("891.32"), new BigDecimal("16.99"),
+        new BigDecimal("578.5"), new BigDecimal("95"));
+
+    final MoneyAccumulator accumulator = new MoneyAccumulator();
+    amounts.forEach(accumulator::add);
+
+    assertThat(accumulator.total(), is(sumOf(amounts)));
+    assertThat(accumulator.total().toPlainString(), is("1581.81"));
+  }
+
+  @Test
+  public void testTotalOfNoAmounts() {
+    assertThat(new MoneyAccumulator().total(), is(new BigDecimal("0.00")));
+  }
+
+  @Test
+  public void testAmountsWithLargerScaleKeepTheirScale() {
+    final List<BigDecimal> amounts = Arrays.asList(new BigDecimal("10.25"), new BigDecimal("0.125"),
+        new BigDecimal("-3.1"));
+
+    final MoneyAccumulator accumulator = new MoneyAccumulator();
+    amounts.forEach(accumulator::add);
+
+    assertThat(accumulator.total(), is(sumOf(amounts)));
+    assertThat(accumulator.total().scale(), is(3));
+  }
+
+  @Test
+  public void testRunningTotalWhichOverflowsALongIsPromoted() {
+    final List<BigDecimal> amounts = Arrays.asList(BigDecimal.valueOf(Long.MAX_VALUE - 1, 2),
+        BigDecimal.valueOf(Long.MAX_VALUE - 1, 2), new BigDecimal("0.01"), BigDecimal.valueOf(Long.MIN_VALUE, 2),
+        new BigDecimal("123456789012345678901234567890.12"));
+
+    final MoneyAccumulator accumulator = new MoneyAccumulator();
+    amounts.forEach(accumulator::add);
+
+    assertThat(accumulator.total(), is(sumOf(amounts)));
+  }
+
+  @Test
+  public void testCombine() {
+    final MoneyAccumulator left = new MoneyAccumulator().add(new BigDecimal("1.50")).addUnscaled(Long.MAX_VALUE);
+    final MoneyAccumulator right = new MoneyAccumulator().add(new BigDecimal("2.005")).addUnscaled(Long.MAX_VALUE);
+
+    final BigDecimal expected = new BigDecimal("1.50").add(new BigDecimal("2.005"))
+        .add(BigDecimal.valueOf(Long.MAX_VALUE, 2).multiply(BigDecimal.valueOf(2)));
+    assertThat(left.combine(right).total(), is(expected));
+  }
+
+  @Test
+  public void testParallelSumOfStudentFees() {
+    final Random random = new Random(42);
+    final List<Student> students = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      students.add(new Student(LocalDate.ofEpochDay(i % 10_000), "s" + i + "@test.net",
+          BigDecimal.valueOf(random.nextInt(100_000_00), random.nextInt(3))));
+    }
+    final BigDecimal expectedTotalFees = students.stream().map(Student::getFee).reduce(new BigDecimal("0.00"),
+        BigDecimal::add);
+
+    assertThat(MoneyAccumulator.parallelSum(students, Student::getFee), is(expectedTotalFees));
+    final List<Student> someStudents = new LinkedList<>(students.subList(0, 10));
+    assertThat(MoneyAccumulator.parallelSum(someStudents, Student::getFee),
+        is(sumOf(someStudents.stream().map(Student::getFee).collect(toList()))));
+  }
+
+  private static BigDecimal sumOf(List<BigDecimal> amounts) {
+    return amounts.stream().reduce(new BigDecimal("0.00"), BigDecimal::add);
+  }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Factory methods for implementations of {@link Collector} which complement those provided by
+ * {@link java.util.stream.Collectors}, for use in hot stream pipelines.
+ */
+final class MoreCollectors {
+
+  private MoreCollectors() {
+  }
+
+  /**
+   * Returns a {@link Collector} which sums the monetary amounts of the input elements, using a
+   * {@link MoneyAccumulator} per partition rather than creating a new {@link BigDecimal} per element.
+   * <p>
+   * The result is exactly the same as {@code map(amountFunction).reduce(new BigDecimal("0.00"), BigDecimal::add)}.
+   *
+   * @param amountFunction A function which returns an element's amount, e.g. {@code Student::getFee}.
+   * @param <T> The type of the input elements.
+   * @return The collector.
+   */
+  static <T> Collector<T, ?, BigDecimal> summingMoney(Function<? super T, BigDecimal> amountFunction) {
+    return Collector.of(MoneyAccumulator::new, (acc, t) -> acc.add(amountFunction.apply(t)), MoneyAccumulator::combine,
+        MoneyAccumulator::total, Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * Returns a concurrent {@link Collector} implementing a cascading group-by operation which maps the elements in each
+   * group to a set, equivalent to {@code groupingBy(classifier, mapping(mapper, toSet()))}.
+   * <p>
+   * When used with a parallel stream, all threads accumulate into a single {@link ConcurrentHashMap} of lock-free
+   * concurrent sets, rather than each fork-join leaf building its own map of sets which then have to be merged. Unlike
+   * {@link java.util.stream.Collectors#groupingByConcurrent(Function, Collector)}, threads adding to the same group
+   * don't contend on a lock.
+   *
+   * @param classifier A function which returns an element's group key, e.g. {@code Student::getCountry}.
+   * @param mapper A function which returns the value to add to the element's group, e.g. {@code Student::getEmail}.
+   * @param <T> The type of the input elements.
+   * @param <K> The type of the group keys.
+   * @param <V> The type of the values in each group.
+   * @return The collector.
+   */
+  static <T, K, V> Collector<T, ?, ConcurrentMap<K, Set<V>>> groupingByConcurrentToSet(
+      Function<? super T, ? extends K> classifier, Function<? super T, ? extends V> mapper) {
+    return Collector.of(ConcurrentHashMap::new, (ConcurrentMap<K, Set<V>> map, T t) -> {
+      final K key = Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key");
+      Set<V> values = map.get(key);
+      if (values == null) {
+        values = map.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+      }
+      values.add(mapper.apply(t));
+    }, (map1, map2) -> {
+      map2.forEach((key, values) -> map1.merge(key, values, (values1, values2) -> {
+        values1.addAll(values2);
+        return values1;
+      }));
+      return map1;
+    }, Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED,
+        Collector.Characteristics.IDENTITY_FINISH);
+  }
+
+  /**
+   * Returns a {@link Collector} which selects the k greatest input elements, according to the supplied comparator, as
+   * an alternative to {@code sorted(comparator.reversed()).limit(k)} which sorts (and buffers) every element.
+   * <p>
+   * Each partition of the stream accumulates into a bounded heap of at most k elements, whose root is the least of
+   * them, so each element is compared with the root, and only replaces it (in O(log k)) if it's greater. The heaps of
+   * parallel partitions are merged by the combiner. The collector therefore runs in O(n log k) time, using O(k) memory
+   * per partition.
+   * <p>
+   * The order of elements which compare as equal is unspecified, as is which of them is selected if they're tied for
+   * the last place.
+   *
+   * @param k The max no. of elements to select.
+   * @param comparator The comparator used to compare the elements.
+   * @param <T> The type of the input elements.
+   * @return The collector, which returns the (at most) k greatest elements, greatest first.
+   */
+  static <T> Collector<T, ?, List<T>> greatest(int k, Comparator<? super T> comparator) {
+    checkK(k);
+    Objects.requireNonNull(comparator);
+    return Collector.of(() -> new TopK<T>(k, comparator), TopK::add, TopK::merge, TopK::toList,
+        Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * Returns a {@link Collector} which selects the k least input elements, according to the supplied comparator, as
+   * an alternative to {@code sorted(comparator).limit(k)}. See {@link #greatest(int, Comparator)}.
+   *
+   * @param k The max no. of elements to select.
+   * @param comparator The comparator used to compare the elements.
+   * @param <T> The type of the input elements.
+   * @return The collector, which returns the (at most) k least elements, least first.
+   */
+  static <T> Collector<T, ?, List<T>> least(int k, Comparator<? super T> comparator) {
+    return greatest(k, Collections.reverseOrder(comparator));
+  }
+
+  /**
+   * Returns a {@link Collector} which selects the k input elements with the greatest long key, like
+   * {@link #greatest(int, Comparator)}, but which extracts each element's key only once, and compares keys as primitive
+   * longs, without any comparator or boxing.
+   *
+   * @param k The max no. of elements to select.
+   * @param keyFunction A function which returns an element's key.
+   * @param <T> The type of the input elements.
+   * @return The collector, which returns the (at most) k elements with the greatest keys, greatest first.
+   */
+  static <T> Collector<T, ?, List<T>> greatestByLong(int k, ToLongFunction<? super T> keyFunction) {
+    return topByLong(k, keyFunction, true);
+  }
+
+  /**
+   * Returns a {@link Collector} which selects the k input elements with the least long key. See
+   * {@link #greatestByLong(int, ToLongFunction)}.
+   *
+   * @param k The max no. of elements to select.
+   * @param keyFunction A function which returns an element's key.
+   * @param <T> The type of the input elements.
+   * @return The collector, which returns the (at most) k elements with the least keys, least first.
+   */
+  static <T> Collector<T, ?, List<T>> leastByLong(int k, ToLongFunction<? super T> keyFunction) {
+    return topByLong(k, keyFunction, false);
+  }
+
+  /**
+   * @param k The max no. of students to select.
+   * @return A {@link Collector} which selects the k students who pay the highest fees, highest first, comparing fees
+   * as a long no. of cents.
+   * @throws ArithmeticException (When collecting) if a student's fee isn't a whole no. of cents.
+   */
+  static Collector<Student, ?, List<Student>> highestFees(int k) {
+    return greatestByLong(k, s -> s.getFee().movePointRight(2).longValueExact());
+  }
+
+  /**
+   * @param k The max no. of students to select.
+   * @return A {@link Collector} which selects the k oldest students, oldest first, comparing dates of birth as a long
+   * epoch day.
+   */
+  static Collector<Student, ?, List<Student>> oldest(int k) {
+    return leastByLong(k, s -> s.getDob().toEpochDay());
+  }
+
+  private static <T> Collector<T, ?, List<T>> topByLong(int k, ToLongFunction<? super T> keyFunction,
+      boolean greatest) {
+    checkK(k);
+    Objects.requireNonNull(keyFunction);
+    return Collector.of(() -> new LongTopK<T>(k, greatest), (top, t) -> top.add(keyFunction.applyAsLong(t), t),
+        LongTopK::merge, LongTopK::toList, Collector.Characteristics.UNORDERED);
+  }
+
+  private static void checkK(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("Invalid k [" + k + "]");
+    }
+  }
+
+  /**
+   * A bounded binary min-heap of (at most) the k greatest elements added to it. The heap's array grows as elements are
+   * added, up to k.
+   */
+  private static final class TopK<T> {
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private Object[] heap;
+    private int size;
+
+    TopK(int k, Comparator<? super T> comparator) {
+      this.k = k;
+      this.comparator = comparator;
+      this.heap = new Object[Math.min(k, 16)];
+    }
+
+    void add(T t) {
+      if (this.size < this.k) {
+        if (this.size == this.heap.length) {
+          this.heap = Arrays.copyOf(this.heap, (int) Math.min(this.k, 2L * this.size));
+        }
+        siftUp(this.size++, t);
+      } else if (this.k > 0 && this.comparator.compare(t, element(0)) > 0) {
+        siftDown(0, t);
+      }
+    }
+
+    TopK<T> merge(TopK<T> other) {
+      final TopK<T> into = this.size >= other.size ? this : other;
+      final TopK<T> from = into == this ? other : this;
+      for (int i = 0; i < from.size; i++) {
+        into.add(from.element(i));
+      }
+      return into;
+    }
+
+    List<T> toList() {
+      final List<T> list = new ArrayList<>(this.size);
+      for (int i = 0; i < this.size; i++) {
+        list.add(element(i));
+      }
+      list.sort(Collections.reverseOrder(this.comparator));
+      return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(int i) {
+      return (T) this.heap[i];
+    }
+
+    private void siftUp(int i, T t) {
+      while (i > 0) {
+        final int parent = (i - 1) >>> 1;
+        if (this.comparator.compare(t, element(parent)) >= 0) {
+          break;
+        }
+        this.heap[i] = this.heap[parent];
+        i = parent;
+      }
+      this.heap[i] = t;
+    }
+
+    private void siftDown(int i, T t) {
+      final int half = this.size >>> 1;
+      while (i < half) {
+        int child = 2 * i + 1;
+        if (child + 1 < this.size && this.comparator.compare(element(child + 1), element(child)) < 0) {
+          child++;
+        }
+        if (this.comparator.compare(t, element(child)) <= 0) {
+          break;
+        }
+        this.heap[i] = this.heap[child];
+        i = child;
+      }
+      this.heap[i] = t;
+    }
+  }
+
+  /**
+   * A bounded binary heap of (at most) the k elements with the greatest (or least) long keys added to it, whose root
+   * is the worst of them. Keys are held in a parallel primitive array.
+   */
+  private static final class LongTopK<T> {
+    private final int k;
+    private final boolean greatest;
+    private long[] keys;
+    private Object[] elements;
+    private int size;
+
+    LongTopK(int k, boolean greatest) {
+      this.k = k;
+      this.greatest = greatest;
+      this.keys = new long[Math.min(k, 16)];
+      this.elements = new Object[this.keys.length];
+    }
+
+    /**
+     * @return True if key1 should be nearer the root of the heap than key2, i.e. is worse.
+     */
+    private boolean worse(long key1, long key2) {
+      return this.greatest ? key1 < key2 : key1 > key2;
+    }
+
+    void add(long key, Object element) {
+      if (this.size < this.k) {
+        if (this.size == this.keys.length) {
+          final int capacity = (int) Math.min(this.k, 2L * this.size);
+          this.keys = Arrays.copyOf(this.keys, capacity);
+          this.elements = Arrays.copyOf(this.elements, capacity);
+        }
+        siftUp(this.size++, key, element);
+      } else if (this.k > 0 && worse(this.keys[0], key)) {
+        siftDown(0, key, element);
+      }
+    }
+
+    LongTopK<T> merge(LongTopK<T> other) {
+      final LongTopK<T> into = this.size >= other.size ? this : other;
+      final LongTopK<T> from = into == this ? other : this;
+      for (int i = 0; i < from.size; i++) {
+        into.add(from.keys[i], from.elements[i]);
+      }
+      return into;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<T> toList() {
+      // Repeatedly remove the root, filling the list from the end, so the best element is first
+      final Object[] sorted = new Object[this.size];
+      while (this.size > 0) {
+        sorted[this.size - 1] = this.elements[0];
+        this.size--;
+        siftDown(0, this.keys[this.size], this.elements[this.size]);
+        this.elements[this.size] = null;
+      }
+      return new ArrayList<>((List<T>) Arrays.asList(sorted));
+    }
+
+    private void siftUp(int i, long key, Object element) {
+      while (i > 0) {
+        final int parent = (i - 1) >>> 1;
+        if (!worse(key, this.keys[parent])) {
+          break;
+        }
+        this.keys[i] = this.keys[parent];
+        this.elements[i] = this.elements[parent];
+        i = parent;
+      }
+      this.keys[i] = key;
+      this.elements[i] = element;
+    }
+
+    private void siftDown(int i, long key, Object element) {
+      final int half = this.size >>> 1;
+      while (i < half) {
+        int child = 2 * i + 1;
+        if (child + 1 < this.size && worse(this.keys[child + 1], this.keys[child])) {
+          child++;
+        }
+        if (!worse(this.keys[child], key)) {
+          break;
+        }
+        this.keys[i] = this.keys[child];
+        this.elements[i] = this.elements[child];
+        i = child;
+      }
+      this.keys[i] = key;
+      this.elements[i] = element;
+    }
+  }
+}
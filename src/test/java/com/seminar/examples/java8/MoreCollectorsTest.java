@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.collection.IsMapContaining.hasEntry;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Tests for the {@link java.util.stream.Collector} implementations provided by {@link MoreCollectors}.
+ */
+public class MoreCollectorsTest {
+
+  @Test
+  public void testSummingMoney() {
+    final List<Student> students = new ArrayList<>();
+    students.add(new Student(LocalDate.of(1974, Month.JUNE, 21), "jo.bloggs@test.net", new BigDecimal("891.32")));
+    students.add(new Student(LocalDate.of(1980, Month.JANUARY, 2), "ja.bloggs@test.net", new BigDecimal("16.99")));
+    students.add(new Student(LocalDate.of(1976, Month.AUGUST, 7), "ji.bloggs@test.net", new BigDecimal("578.50")));
+    students.add(new Student(LocalDate.of(1973, Month.JULY, 12), "nel.bloggs@test.net", new BigDecimal("95.00")));
+    for (int i = 0; i < 10_000; i++) {
+      students.add(new Student(LocalDate.of(1990, Month.MAY, 1), "s" + i + "@test.net", BigDecimal.valueOf(i, 2)));
+    }
+    final BigDecimal expectedTotalFees = students.stream().map(Student::getFee).reduce(new BigDecimal("0.00"),
+        BigDecimal::add);
+
+    assertThat(students.stream().collect(MoreCollectors.summingMoney(Student::getFee)), is(expectedTotalFees));
+    assertThat(students.parallelStream().collect(MoreCollectors.summingMoney(Student::getFee)), is(expectedTotalFees));
+  }
+
+  @Test
+  public void testGroupingByConcurrentToSet() {
+    final List<Student> students = new ArrayList<>();
+    final Student s1 = new Student(LocalDate.of(1974, Month.JUNE, 21), "joe.bloggs@test.net");
+    s1.setCountry("UK");
+    students.add(s1);
+    final Student s2 = new Student(LocalDate.of(1980, Month.JANUARY, 2), "jane.bloggs@test.net");
+    s2.setCountry("Netherlands");
+    students.add(s2);
+    final Student s3 = new Student(s1.getDob(), "jim.bloggs@test.net");
+    s3.setCountry("Sweden");
+    students.add(s3);
+    final Student s4 = new Student(LocalDate.of(1973, Month.JULY, 12), "nellie.bloggs@test.net");
+    s4.setCountry("UK");
+    students.add(s4);
+
+    final Map<String, Set<String>> emailsByCountry = students.stream()
+        .collect(MoreCollectors.groupingByConcurrentToSet(Student::getCountry, Student::getEmail));
+
+    assertThat(emailsByCountry.keySet(), hasSize(3));
+    assertThat(emailsByCountry, hasEntry(is(s1.getCountry()), containsInAnyOrder(s1.getEmail(), s4.getEmail())));
+    assertThat(emailsByCountry, hasEntry(is(s2.getCountry()), contains(s2.getEmail())));
+    assertThat(emailsByCountry, hasEntry(is(s3.getCountry()), contains(s3.getEmail())));
+  }
+
+  @Test
+  public void testGroupingByConcurrentToSetInParallel() {
+    final String[] countries = { "UK", "Netherlands", "Sweden", "France", "Spain" };
+    final List<Student> students = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      final Student s = new Student(LocalDate.of(1990, Month.MAY, 1), "s" + (i % 60_000) + "@test.net");
+      s.setCountry(countries[i % countries.length]);
+      students.add(s);
+    }
+    final Map<String, Set<String>> expected = students.stream()
+        .collect(groupingBy(Student::getCountry, mapping(Student::getEmail, toSet())));
+
+    final Map<String, Set<String>> emailsByCountry = students.parallelStream()
+        .collect(MoreCollectors.groupingByConcurrentToSet(Student::getCountry, Student::getEmail));
+
+    assertThat(emailsByCountry, is(expected));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testGroupingByConcurrentToSetRejectsNullKey() {
+    final List<Student> students = new ArrayList<>();
+    students.add(new Student(LocalDate.of(1974, Month.JUNE, 21), "joe.bloggs@test.net"));
+
+    students.stream().collect(MoreCollectors.groupingByConcurrentToSet(Student::getCountry, Student::getEmail));
+  }
+
+  @Test
+  public void testGreatestAndLeast() {
+    final List<Integer> values = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+    Collections.shuffle(values, new Random(42));
+    final List<Integer> top = IntStream.range(0, 100).map(i -> 99_999 - i).boxed().collect(Collectors.toList());
+    final List<Integer> bottom = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+    assertThat(values.stream().collect(MoreCollectors.greatest(100, Comparator.naturalOrder())), is(top));
+    assertThat(values.parallelStream().collect(MoreCollectors.greatest(100, Comparator.naturalOrder())), is(top));
+    assertThat(values.parallelStream().collect(MoreCollectors.least(100, Comparator.naturalOrder())), is(bottom));
+    assertThat(values.parallelStream().collect(MoreCollectors.greatestByLong(100, i -> i)), is(top));
+    assertThat(values.parallelStream().collect(MoreCollectors.leastByLong(100, i -> i)), is(bottom));
+  }
+
+  @Test
+  public void testGreatestWithFewerElementsThanK() {
+    final List<Integer> values = Arrays.asList(3, 1, 2, 1);
+
+    assertThat(values.stream().collect(MoreCollectors.greatest(10, Comparator.naturalOrder())), contains(3, 2, 1, 1));
+    assertThat(values.stream().collect(MoreCollectors.leastByLong(10, i -> i)), contains(1, 1, 2, 3));
+    assertThat(values.stream().collect(MoreCollectors.greatestByLong(0, i -> i)), hasSize(0));
+  }
+
+  @Test
+  public void testHighestFeesAndOldest() {
+    final List<Student> students = new ArrayList<>();
+    final Student s1 = new Student(LocalDate.of(1974, Month.JUNE, 21), "jo.bloggs@test.net", new BigDecimal("291.32"));
+    students.add(s1);
+    final Student s2 = new Student(LocalDate.of(1980, Month.JANUARY, 2), "ja.bloggs@test.net", new BigDecimal("16.99"));
+    students.add(s2);
+    final Student s3 = new Student(LocalDate.of(1976, Month.AUGUST, 7), "ji.bloggs@test.net", new BigDecimal("578.5"));
+    students.add(s3);
+    final Student s4 = new Student(LocalDate.of(1973, Month.JULY, 12), "nel.bloggs@test.net", new BigDecimal("95"));
+    students.add(s4);
+
+    assertThat(students.parallelStream().collect(MoreCollectors.highestFees(2)), contains(s3, s1));
+    assertThat(students.parallelStream().collect(MoreCollectors.oldest(2)), contains(s4, s1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGreatestRejectsNegativeK() {
+    MoreCollectors.greatest(-1, Comparator.<Integer>naturalOrder());
+  }
+}
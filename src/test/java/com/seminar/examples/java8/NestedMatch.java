@@ -0,0 +1,253 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Match operations over the children of a list of parents, e.g. the exam results of a list of students, as faster
+ * alternatives to {@code parents.stream().flatMap(p -> p.getChildren().stream()).anyMatch(predicate)} (see
+ * {@link StreamApiExamplesTest#testAnyMatch()}).
+ * <p>
+ * The children are walked directly, using indexed access to each parent's list of children, without creating a
+ * stream per parent. {@link #anyMatch(List, Function, List, boolean)} tests several predicates in a single pass,
+ * rather than flattening the children once per predicate, and only tests each child against the predicates which are
+ * still undecided.
+ * <p>
+ * When run in parallel, the parents are split into ranges processed by fork-join tasks. Unlike a parallel
+ * {@code flatMap}, which can't cancel the traversal of an inner stream, every task stops as soon as the result is
+ * decided - all predicates have matched, or (for {@link #findFirst}) a match has been found before the task's range.
+ */
+final class NestedMatch {
+
+  /** Min no. of parents processed by a fork-join task. */
+  private static final int MIN_PARENTS_PER_TASK = 256;
+
+  private NestedMatch() {
+  }
+
+  /**
+   * @param parents The parents, e.g. a list of students.
+   * @param children A function which returns a parent's (random access) list of children, e.g.
+   * {@code Student::getExamResults}.
+   * @param predicates The predicates to test the children against.
+   * @param parallel True if the children should be tested in parallel.
+   * @param <T> The type of parent.
+   * @param <E> The type of child.
+   * @return An array of the result of each predicate, in order - true if any child matches it.
+   */
+  static <T, E> boolean[] anyMatch(List<T> parents, Function<? super T, ? extends List<? extends E>> children,
+      List<? extends Predicate<? super E>> predicates, boolean parallel) {
+    final AnyMatchTask<T, E> task = new AnyMatchTask<>(new AnyMatchState<>(randomAccess(parents), children,
+        predicates), 0, parents.size());
+    if (parallel) {
+      ForkJoinPool.commonPool().invoke(task);
+    } else {
+      task.match();
+    }
+    final boolean[] matched = new boolean[predicates.size()];
+    for (int p = 0; p < matched.length; p++) {
+      matched[p] = task.state.matched.get(p) != 0;
+    }
+    return matched;
+  }
+
+  /**
+   * @param parents The parents, e.g. a list of students.
+   * @param children A function which returns a parent's (random access) list of children, e.g.
+   * {@code Student::getExamResults}.
+   * @param predicate The predicate to test the children against.
+   * @param parallel True if the children should be tested in parallel.
+   * @param <T> The type of parent.
+   * @param <E> The type of child.
+   * @return The first child (in order of parent, then child) which matches the predicate, if any.
+   */
+  static <T, E> Optional<E> findFirst(List<T> parents, Function<? super T, ? extends List<? extends E>> children,
+      Predicate<? super E> predicate, boolean parallel) {
+    final FindFirstState<T, E> state = new FindFirstState<>(randomAccess(parents), children, predicate);
+    final FindFirstTask<T, E> task = new FindFirstTask<>(state, 0, parents.size());
+    if (parallel) {
+      ForkJoinPool.commonPool().invoke(task);
+    } else {
+      task.find();
+    }
+    final long first = state.first.get();
+    if (first == Long.MAX_VALUE) {
+      return Optional.empty();
+    }
+    return Optional.of(children.apply(state.parents.get((int) (first >>> 32))).get((int) first));
+  }
+
+  private static <T> List<T> randomAccess(List<T> list) {
+    return list instanceof RandomAccess ? list : new ArrayList<>(list);
+  }
+
+  private static boolean shouldSplit(int from, int to) {
+    return to - from > MIN_PARENTS_PER_TASK;
+  }
+
+  /**
+   * The state shared by all the tasks of an anyMatch operation.
+   */
+  private static final class AnyMatchState<T, E> {
+    private final List<T> parents;
+    private final Function<? super T, ? extends List<? extends E>> children;
+    private final List<? extends Predicate<? super E>> predicates;
+    private final AtomicIntegerArray matched;
+    private final AtomicInteger undecided;
+
+    AnyMatchState(List<T> parents, Function<? super T, ? extends List<? extends E>> children,
+        List<? extends Predicate<? super E>> predicates) {
+      this.parents = parents;
+      this.children = children;
+      this.predicates = new ArrayList<>(predicates);
+      this.matched = new AtomicIntegerArray(predicates.size());
+      this.undecided = new AtomicInteger(predicates.size());
+    }
+  }
+
+  private static final class AnyMatchTask<T, E> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final AnyMatchState<T, E> state;
+    private final int from;
+    private final int to;
+
+    AnyMatchTask(AnyMatchState<T, E> state, int from, int to) {
+      this.state = state;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.state.undecided.get() == 0) {
+        return;
+      }
+      if (shouldSplit(this.from, this.to)) {
+        final int mid = (this.from + this.to) >>> 1;
+        invokeAll(new AnyMatchTask<>(this.state, this.from, mid), new AnyMatchTask<>(this.state, mid, this.to));
+      } else {
+        match();
+      }
+    }
+
+    void match() {
+      final AnyMatchState<T, E> s = this.state;
+      // The indexes of the predicates which this task hasn't yet seen matched, refreshed once per parent
+      final int[] remaining = new int[s.predicates.size()];
+      for (int i = this.from; i < this.to; i++) {
+        int remainingCount = 0;
+        for (int p = 0; p < remaining.length; p++) {
+          if (s.matched.get(p) == 0) {
+            remaining[remainingCount++] = p;
+          }
+        }
+        if (remainingCount == 0) {
+          return;
+        }
+        final List<? extends E> children = s.children.apply(s.parents.get(i));
+        for (int c = 0, n = children.size(); c < n && remainingCount > 0; c++) {
+          final E child = children.get(c);
+          for (int r = 0; r < remainingCount; r++) {
+            final int p = remaining[r];
+            if (s.predicates.get(p).test(child)) {
+              if (s.matched.compareAndSet(p, 0, 1)) {
+                s.undecided.decrementAndGet();
+              }
+              remaining[r--] = remaining[--remainingCount];
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * The state shared by all the tasks of a findFirst operation.
+   */
+  private static final class FindFirstState<T, E> {
+    private final List<T> parents;
+    private final Function<? super T, ? extends List<? extends E>> children;
+    private final Predicate<? super E> predicate;
+    /** The position of the first match found so far - (parent index << 32 | child index) - or Long.MAX_VALUE. */
+    private final AtomicLong first = new AtomicLong(Long.MAX_VALUE);
+
+    FindFirstState(List<T> parents, Function<? super T, ? extends List<? extends E>> children,
+        Predicate<? super E> predicate) {
+      this.parents = parents;
+      this.children = children;
+      this.predicate = predicate;
+    }
+
+    int firstParent() {
+      final long first = this.first.get();
+      return first == Long.MAX_VALUE ? Integer.MAX_VALUE : (int) (first >>> 32);
+    }
+  }
+
+  private static final class FindFirstTask<T, E> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final FindFirstState<T, E> state;
+    private final int from;
+    private final int to;
+
+    FindFirstTask(FindFirstState<T, E> state, int from, int to) {
+      this.state = state;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      // A match has already been found before this task's range
+      if (this.state.firstParent() < this.from) {
+        return;
+      }
+      if (shouldSplit(this.from, this.to)) {
+        final int mid = (this.from + this.to) >>> 1;
+        invokeAll(new FindFirstTask<>(this.state, this.from, mid), new FindFirstTask<>(this.state, mid, this.to));
+      } else {
+        find();
+      }
+    }
+
+    void find() {
+      final FindFirstState<T, E> s = this.state;
+      for (int i = this.from; i < this.to && i <= s.firstParent(); i++) {
+        final List<? extends E> children = s.children.apply(s.parents.get(i));
+        for (int c = 0, n = children.size(); c < n; c++) {
+          if (s.predicate.test(children.get(c))) {
+            final long position = (long) i << 32 | c;
+            s.first.accumulateAndGet(position, Math::min);
+            return;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.ExamResult;
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Tests for {@link NestedMatch}.
+ */
+public class NestedMatchTest {
+
+  private static final int STUDENTS = 20_000;
+  private static final int RESULTS_PER_STUDENT = 5;
+
+  /**
+   * @return Students whose exam results have scores 0, 1, 2, ... in order.
+   */
+  private static List<Student> students() {
+    final List<Student> students = new ArrayList<>(STUDENTS);
+    for (int i = 0; i < STUDENTS; i++) {
+      final Student student = new Student(LocalDate.of(1990, 1, 1), "s" + i + "@test.net");
+      for (int j = 0; j < RESULTS_PER_STUDENT; j++) {
+        student.addExamResult(new ExamResult("Maths", i * RESULTS_PER_STUDENT + j));
+      }
+      students.add(student);
+    }
+    return students;
+  }
+
+  @Test
+  public void testAnyMatch() {
+    final List<Student> students = students();
+    final List<Predicate<ExamResult>> predicates = Arrays.asList(er -> er.getScore() == 99_999,
+        er -> er.getScore() < 0, er -> er.getScore() % 1000 == 7);
+
+    for (boolean parallel : new boolean[] { false, true }) {
+      assertThat(NestedMatch.anyMatch(students, Student::getExamResults, predicates, parallel),
+          is(new boolean[] { true, false, true }));
+    }
+  }
+
+  @Test
+  public void testAnyMatchStopsOnceAllPredicatesMatch() {
+    final List<Student> students = students();
+    for (boolean parallel : new boolean[] { false, true }) {
+      final LongAdder tests = new LongAdder();
+      final List<Predicate<ExamResult>> predicates = Arrays.asList(er -> {
+        tests.increment();
+        return er.getScore() == 3;
+      }, er -> {
+        tests.increment();
+        return er.getScore() % 2 == 0;
+      });
+
+      assertThat(NestedMatch.anyMatch(students, Student::getExamResults, predicates, parallel),
+          is(new boolean[] { true, true }));
+      assertThat(tests.sum(), lessThan((long) STUDENTS * RESULTS_PER_STUDENT / 2));
+    }
+  }
+
+  @Test
+  public void testFindFirst() {
+    final List<Student> students = students();
+
+    for (boolean parallel : new boolean[] { false, true }) {
+      final Optional<ExamResult> first = NestedMatch.findFirst(students, Student::getExamResults,
+          er -> er.getScore() > 50_000 && er.getScore() % 3 == 0, parallel);
+      assertThat(first.map(ExamResult::getScore), is(Optional.of(50_001)));
+      assertThat(NestedMatch.findFirst(students, Student::getExamResults, er -> er.getScore() < 0, parallel),
+          is(Optional.empty()));
+    }
+  }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A segmented Sieve of Eratosthenes, which produces streams of prime numbers, as a faster alternative to filtering a
+ * stream of integers by testing each for primality using trial division (see
+ * {@link StreamApiExamplesTest#testInfiniteStream()}).
+ * <p>
+ * Numbers are sieved in fixed-size segments, small enough for their bitset to stay in the CPU cache. Only the numbers
+ * which are coprime to 30, i.e. not divisible by 2, 3 or 5, are represented in a segment's bitset (a 2-3-5 wheel) - 8
+ * of every 30 numbers, so 8 bits per block of 30 numbers, a bit for each of the residues mod 30 in {@link #RESIDUES}.
+ * That's less than a third of the memory of a plain sieve, and as the multiples of a prime which are coprime to 30
+ * fall into 8 arithmetic progressions, each a fixed no. of bits apart, sieving marks less than a third as many bits.
+ * <p>
+ * Each segment is only sieved when the stream reaches it, so the streams are lazy, and {@link #primes()} is infinite.
+ * The bounded streams returned by {@link #primes(long, long)} split at segment boundaries, so when run in parallel,
+ * segments are sieved concurrently on the fork-join pool.
+ */
+final class PrimeSieve {
+
+  /** The residues mod 30 of the numbers which are coprime to 30, each of which has a bit per block of 30 numbers. */
+  private static final int[] RESIDUES = { 1, 7, 11, 13, 17, 19, 23, 29 };
+
+  /**
+   * For each residue mod 30, the index in {@link #RESIDUES} of the first residue which is at least as great, or 8 if
+   * there's none, i.e. the first residue of the next block.
+   */
+  private static final int[] NEXT_RESIDUE_INDEX = new int[30];
+
+  static {
+    for (int residue = 0, i = 0; residue < 30; residue++) {
+      while (i < RESIDUES.length && RESIDUES[i] < residue) {
+        i++;
+      }
+      NEXT_RESIDUE_INDEX[residue] = i;
+    }
+  }
+
+  /** The primes which aren't represented by the wheel. */
+  private static final long[] WHEEL_PRIMES = { 2, 3, 5 };
+
+  /** No. of bits per segment - 2^18 bits, a 32KB bitset. */
+  private static final int SEGMENT_BITS = 1 << 18;
+
+  /** Range of numbers per segment - a block of 30 numbers per 8 bits. */
+  private static final long SEGMENT_SPAN = 30L * (SEGMENT_BITS / RESIDUES.length);
+
+  /** Odd primes used to sieve segments, extended on demand. */
+  private static volatile BasePrimes basePrimes = BasePrimes.upTo(1 << 16);
+
+  private PrimeSieve() {
+  }
+
+  /**
+   * @return A lazy, infinite, ordered stream of all the prime numbers, starting from 2. The stream doesn't split, as an
+   * infinite range can't be divided, so it's traversed sequentially even if {@link LongStream#parallel()} is applied -
+   * use {@link #primes(long, long)} to sieve a bounded range in parallel.
+   */
+  static LongStream primes() {
+    return StreamSupport.longStream(new PrimeSpliterator(2, Long.MAX_VALUE, false), false);
+  }
+
+  /**
+   * @param from The inclusive lower bound.
+   * @param to The exclusive upper bound.
+   * @return A lazy, ordered stream of the prime numbers in the supplied range. The stream is sequential, but splits at
+   * segment boundaries, so segments are sieved in parallel if {@link LongStream#parallel()} is applied.
+   */
+  static LongStream primes(long from, long to) {
+    if (from < 0 || to < from) {
+      throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ")");
+    }
+    return StreamSupport.longStream(new PrimeSpliterator(from, to, true), false);
+  }
+
+  /**
+   * @return A lazy, ordered stream of all the prime numbers which are representable as an int.
+   */
+  static IntStream intPrimes() {
+    return primes(2, Integer.MAX_VALUE + 1L).mapToInt(p -> (int) p);
+  }
+
+  private static int[] basePrimesUpTo(long limit) {
+    BasePrimes primes = basePrimes;
+    if (primes.limit < limit) {
+      synchronized (PrimeSieve.class) {
+        primes = basePrimes;
+        if (primes.limit < limit) {
+          final long newLimit = Math.min(Integer.MAX_VALUE - 1, Math.max(limit, 2L * primes.limit));
+          primes = basePrimes = BasePrimes.upTo((int) newLimit);
+        }
+      }
+    }
+    return primes.primes;
+  }
+
+  /**
+   * Sieves the segment starting at the supplied number.
+   *
+   * @param segmentStart The first number in the segment, a multiple of {@link #SEGMENT_SPAN}.
+   * @return A bitset in which bit i is set if the number {@code segmentStart + 30 * (i / 8) + RESIDUES[i % 8]} is
+   * composite (or is 1).
+   */
+  private static long[] sieveSegment(long segmentStart) {
+    final long segmentEnd = segmentStart + SEGMENT_SPAN;
+    final long[] composite = new long[SEGMENT_BITS / Long.SIZE];
+    for (int p : basePrimesUpTo((long) Math.sqrt((double) segmentEnd) + 1)) {
+      if (p < 7) {
+        // Multiples of 3 and 5 aren't represented
+        continue;
+      }
+      final long square = (long) p * p;
+      if (square >= segmentEnd) {
+        break;
+      }
+      // The multiples p * q, for q coprime to 30, which aren't p itself. For each residue of q mod 30, they're 30 * p
+      // apart, i.e. p blocks, so 8 * p bits
+      final long firstQ = Math.max(p, (segmentStart + p - 1) / p);
+      final long step = (long) RESIDUES.length * p;
+      for (int residue : RESIDUES) {
+        final long q = firstQ + Math.floorMod(residue - firstQ, 30);
+        final long multiple = p * q;
+        if (multiple >= segmentEnd) {
+          continue;
+        }
+        for (long i = bitOf(segmentStart, multiple); i < SEGMENT_BITS; i += step) {
+          composite[(int) (i >>> 6)] |= 1L << i;
+        }
+      }
+    }
+    if (segmentStart == 0) {
+      composite[0] |= 1L; // 1 isn't prime
+    }
+    return composite;
+  }
+
+  /**
+   * @return The bit of the segment for the supplied number, or if it isn't coprime to 30, for the next number which is
+   * (which may be the first bit of the next segment).
+   */
+  private static long bitOf(long segmentStart, long n) {
+    final long offset = n - segmentStart;
+    return offset / 30 * RESIDUES.length + NEXT_RESIDUE_INDEX[(int) (offset % 30)];
+  }
+
+  /**
+   * The odd primes up to a limit, found using a simple (non-segmented) sieve.
+   */
+  private static final class BasePrimes {
+    private final int limit;
+    private final int[] primes;
+
+    private BasePrimes(int limit, int[] primes) {
+      this.limit = limit;
+      this.primes = primes;
+    }
+
+    static BasePrimes upTo(int limit) {
+      // Bit i represents the odd number 2i + 1
+      final int odds = limit / 2 + 1;
+      final long[] composite = new long[(odds + 63) / 64];
+      for (long p = 3; p * p <= limit; p += 2) {
+        if ((composite[(int) (p >>> 7)] & (1L << (p >>> 1))) == 0) {
+          for (long i = (p * p) >>> 1; i < odds; i += p) {
+            composite[(int) (i >>> 6)] |= 1L << i;
+          }
+        }
+      }
+      int[] primes = new int[1024];
+      int count = 0;
+      for (int i = 1; i < odds; i++) {
+        if ((composite[i >>> 6] & (1L << i)) == 0 && 2 * i + 1 <= limit) {
+          if (count == primes.length) {
+            primes = Arrays.copyOf(primes, count * 2);
+          }
+          primes[count++] = 2 * i + 1;
+        }
+      }
+      return new BasePrimes(limit, Arrays.copyOf(primes, count));
+    }
+  }
+
+  /**
+   * A spliterator over the primes in a range, which sieves one segment at a time as it's traversed.
+   */
+  private static final class PrimeSpliterator implements Spliterator.OfLong {
+    private static final int CHARACTERISTICS = ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+
+    private final boolean splittable;
+    /** The next candidate number, inclusive. */
+    private long next;
+    /** The exclusive upper bound. */
+    private final long end;
+    private long segmentStart = -1;
+    private long[] composite;
+    /** The bit of the current segment for the next candidate, so it's only computed (by division) once per segment. */
+    private int bit;
+
+    PrimeSpliterator(long from, long end, boolean splittable) {
+      this.next = from;
+      this.end = end;
+      this.splittable = splittable;
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+      final long prime = nextPrime();
+      if (prime < 0) {
+        return false;
+      }
+      action.accept(prime);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action) {
+      for (long prime = nextPrime(); prime >= 0; prime = nextPrime()) {
+        action.accept(prime);
+      }
+    }
+
+    /**
+     * @return The next prime in the range, or -1 if there are no more.
+     */
+    private long nextPrime() {
+      while (this.next < this.end) {
+        if (this.next < 7) {
+          // The primes which aren't represented by the wheel
+          for (long prime : WHEEL_PRIMES) {
+            if (prime >= this.next) {
+              if (prime >= this.end) {
+                this.next = this.end;
+                return -1;
+              }
+              this.next = prime + 1;
+              return prime;
+            }
+          }
+          this.next = 7;
+          continue;
+        }
+        if (this.composite == null || this.next >= this.segmentStart + SEGMENT_SPAN) {
+          this.segmentStart = this.next / SEGMENT_SPAN * SEGMENT_SPAN;
+          this.composite = sieveSegment(this.segmentStart);
+          this.bit = (int) bitOf(this.segmentStart, this.next);
+        }
+        // Find the next clear bit at or after the bit of the next candidate, within the current segment
+        if (this.bit >= SEGMENT_BITS) {
+          this.next = this.segmentStart + SEGMENT_SPAN;
+          continue;
+        }
+        int word = this.bit >>> 6;
+        long bits = ~this.composite[word] & (-1L << this.bit);
+        while (bits == 0 && ++word < this.composite.length) {
+          bits = ~this.composite[word];
+        }
+        if (bits == 0) {
+          this.next = this.segmentStart + SEGMENT_SPAN;
+          continue;
+        }
+        final int bit = word * 64 + Long.numberOfTrailingZeros(bits);
+        final long prime = this.segmentStart + (long) (bit / RESIDUES.length) * 30 + RESIDUES[bit % RESIDUES.length];
+        if (prime >= this.end) {
+          this.next = this.end;
+          return -1;
+        }
+        // The next candidate after the prime is the next number coprime to 30, i.e. the next bit
+        this.next = prime + 1;
+        this.bit = bit + 1;
+        return prime;
+      }
+      return -1;
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+      if (!this.splittable || this.composite != null) {
+        return null;
+      }
+      final long firstSegment = this.next / SEGMENT_SPAN;
+      final long segments = (this.end - 1) / SEGMENT_SPAN - firstSegment + 1;
+      if (segments < 2) {
+        return null;
+      }
+      final long mid = (firstSegment + segments / 2) * SEGMENT_SPAN;
+      final PrimeSpliterator prefix = new PrimeSpliterator(this.next, mid, true);
+      this.next = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      if (this.end == Long.MAX_VALUE) {
+        return Long.MAX_VALUE;
+      }
+      // Prime counting function approximation, pi(x) ~ x / ln(x)
+      return Math.max(0, (long) (primeCount(this.end) - primeCount(this.next)) + 1);
+    }
+
+    private static double primeCount(long x) {
+      return x < 3 ? 0 : x / Math.log(x);
+    }
+
+    @Override
+    public int characteristics() {
+      return CHARACTERISTICS;
+    }
+
+    @Override
+    public Comparator<? super Long> getComparator() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link PrimeSieve} produces the same primes as trial division.
+ */
+public class PrimeSieveTest {
+
+  /**
+   * The sieve based equivalent of {@link StreamApiExamplesTest#testInfiniteStream()}.
+   */
+  @Test
+  public void testSumOfSquareRootOfFirstNPrimes() {
+    final double expectedResult = Math.sqrt(2.0) + Math.sqrt(3.0) + Math.sqrt(5.0) + Math.sqrt(7.0) + Math.sqrt(11.0);
+
+    final double total = PrimeSieve.primes().limit(5).mapToDouble(Math::sqrt).reduce(0.0, Double::sum);
+
+    assertThat(total, is(expectedResult));
+  }
+
+  @Test
+  public void testFirstPrimesMatchTrialDivision() {
+    final long[] expected = LongStream.iterate(2, n -> n + 1).filter(PrimeSieveTest::isPrime).limit(50_000).toArray();
+
+    assertThat(PrimeSieve.primes().limit(50_000).toArray(), is(expected));
+    assertThat(PrimeSieve.intPrimes().limit(50_000).asLongStream().toArray(), is(expected));
+  }
+
+  @Test
+  public void testPrimesInRangeAcrossSegmentBoundaries() {
+    // Segments span 30 * 2^15 numbers
+    final long from = 983_040L * 2 - 1000;
+    final long to = 983_040L * 3 + 1000;
+    final long[] expected = LongStream.range(from, to).filter(PrimeSieveTest::isPrime).toArray();
+
+    assertThat(PrimeSieve.primes(from, to).toArray(), is(expected));
+    assertThat(PrimeSieve.primes(from, to).parallel().toArray(), is(expected));
+  }
+
+  @Test
+  public void testPrimesInSmallRanges() {
+    assertThat(PrimeSieve.primes(0, 2).count(), is(0L));
+    assertThat(PrimeSieve.primes(0, 3).toArray(), is(new long[] { 2 }));
+    assertThat(PrimeSieve.primes(2, 12).toArray(), is(new long[] { 2, 3, 5, 7, 11 }));
+    assertThat(PrimeSieve.primes(8, 11).toArray(), is(new long[0]));
+    assertThat(PrimeSieve.primes(3, 6).toArray(), is(new long[] { 3, 5 }));
+    assertThat(PrimeSieve.primes(4, 5).toArray(), is(new long[0]));
+    assertThat(PrimeSieve.primes(6, 8).toArray(), is(new long[] { 7 }));
+    assertThat(PrimeSieve.primes(97, 98).toArray(), is(new long[] { 97 }));
+  }
+
+  @Test
+  public void testParallelCountOfPrimesBelowTenMillion() {
+    assertThat(PrimeSieve.primes(0, 10_000_000).parallel().count(), is(664_579L));
+  }
+
+  @Test
+  public void testLargePrimesRequiringMoreBasePrimes() {
+    final long from = 5_000_000_000L;
+    final long[] expected = LongStream.range(from, from + 2000).filter(PrimeSieveTest::isPrime).toArray();
+
+    assertThat(PrimeSieve.primes(from, from + 2000).toArray(), is(expected));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidRange() {
+    PrimeSieve.primes(10, 5);
+  }
+
+  private static boolean isPrime(long number) {
+    return number > 1 && LongStream.rangeClosed(2, (long) Math.sqrt(number)).noneMatch(i -> number % i == 0);
+  }
+}
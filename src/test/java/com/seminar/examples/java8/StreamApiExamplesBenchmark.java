@@ -0,0 +1,266 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * JMH benchmark of each "Pre J8" imperative implementation in {@link StreamApiExamplesTest} against its stream-based
+ * equivalent, over a range of no. of students.
+ * <p>
+ * The imperative versions are only parameterised by size. The stream versions are also run sequentially and in
+ * parallel, over either a (boxed) stream of {@link Student}, or a primitive {@link IntStream} over the columns of a
+ * {@link StudentTable} (or of the students' ids) holding the same data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class StreamApiExamplesBenchmark {
+
+  private static final int YEAR_OF_BIRTH_FILTER = 1975;
+
+  /**
+   * The students, and the same data in primitive form.
+   */
+  @State(Scope.Benchmark)
+  public static class Students {
+    @Param({ "10", "1000", "100000", "10000000" })
+    int size;
+
+    List<Student> students;
+    List<Student> firstHalf;
+    List<Student> secondHalf;
+    StudentTable table;
+    int[] firstHalfIds;
+    int[] secondHalfIds;
+
+    @Setup
+    public void setUp() {
+      this.students = new ArrayList<>(this.size);
+      for (int i = 0; i < this.size; i++) {
+        // Spread dates of birth over roughly 30 years, from 1960, and fees from 100.00 to 999.99
+        this.students.add(new Student(LocalDate.ofEpochDay(-3653 + (i * 7919L) % 11_000), "s" + i + "@test.net",
+            BigDecimal.valueOf(10_000 + (i * 104_729L) % 90_000, 2)));
+      }
+      this.firstHalf = new ArrayList<>(this.students.subList(0, this.size / 2));
+      this.secondHalf = new ArrayList<>(this.students.subList(this.size / 2, this.size));
+      this.table = StudentTable.of(this.students);
+      this.firstHalfIds = this.firstHalf.stream().mapToInt(Student::getId).toArray();
+      this.secondHalfIds = this.secondHalf.stream().mapToInt(Student::getId).toArray();
+    }
+  }
+
+  /**
+   * How a stream is executed.
+   */
+  @State(Scope.Benchmark)
+  public static class Execution {
+    @Param({ "false", "true" })
+    boolean parallel;
+
+    @Param({ "false", "true" })
+    boolean boxed;
+  }
+
+  // ---------------------------------------------------------------------------------------------------------- filter
+
+  @Benchmark
+  public List<Student> filterLoop(Students s) {
+    final List<Student> filteredStudents = new ArrayList<>(s.students.size());
+    for (Student student : s.students) {
+      if (student.getDob().getYear() > YEAR_OF_BIRTH_FILTER) {
+        filteredStudents.add(student);
+      }
+    }
+    return filteredStudents;
+  }
+
+  @Benchmark
+  public Object filterStream(Students s, Execution e) {
+    if (e.boxed) {
+      return stream(s.students, e)
+          .filter(student -> student.getDob().getYear() > YEAR_OF_BIRTH_FILTER)
+          .collect(Collectors.toList());
+    }
+    return s.table.ids(parallel(s.table.bornAfterYear(YEAR_OF_BIRTH_FILTER), e)).toArray();
+  }
+
+  // ------------------------------------------------------------------------------------------- limit (two oldest)
+
+  @Benchmark
+  public List<Student> oldestTwoLoop(Students s) {
+    final List<Student> oldestTwoStudents = new ArrayList<>(2);
+    Student oldestStudent = null;
+    Student secondOldestStudent = null;
+    for (Student student : s.students) {
+      if (oldestStudent == null) {
+        oldestStudent = student;
+      } else if (student.getDob().isBefore(oldestStudent.getDob())) {
+        secondOldestStudent = oldestStudent;
+        oldestStudent = student;
+      } else if (secondOldestStudent == null || student.getDob().isBefore(secondOldestStudent.getDob())) {
+        secondOldestStudent = student;
+      }
+    }
+    oldestTwoStudents.add(oldestStudent);
+    oldestTwoStudents.add(secondOldestStudent);
+    return oldestTwoStudents;
+  }
+
+  @Benchmark
+  public List<Student> oldestTwoSortedSubList(Students s) {
+    final List<Student> studentsSortedByDob = new ArrayList<>(s.students);
+    studentsSortedByDob.sort(Comparator.comparing(Student::getDob));
+    return studentsSortedByDob.subList(0, Math.min(2, studentsSortedByDob.size()));
+  }
+
+  @Benchmark
+  public Object oldestTwoStream(Students s, Execution e) {
+    if (e.boxed) {
+      return stream(s.students, e)
+          .sorted((stud1, stud2) -> stud1.getDob().compareTo(stud2.getDob()))
+          .limit(2)
+          .collect(Collectors.toList());
+    }
+    // Sort the rows by date of birth, packing each row's date of birth and index into a long
+    final StudentTable table = s.table;
+    return parallel(table.rows(), e)
+        .mapToLong(row -> (long) table.dobEpochDay(row) << 32 | row)
+        .sorted()
+        .limit(2)
+        .mapToInt(key -> table.id((int) key))
+        .toArray();
+  }
+
+  // -------------------------------------------------------------------------------------------- Iterable as a stream
+
+  @Benchmark
+  public long iterableLoop(Students s) {
+    long sum = 0;
+    for (Student student : s.students) {
+      sum += student.getId();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long iterableStream(Students s, Execution e) {
+    final Iterable<Student> iterable = s.students;
+    if (e.boxed) {
+      return StreamSupport.stream(iterable.spliterator(), e.parallel).map(Student::getId).reduce(0, Integer::sum);
+    }
+    return StreamSupport.stream(iterable.spliterator(), e.parallel).mapToLong(Student::getId).sum();
+  }
+
+  // ------------------------------------------------------------------------------------------------------ concatenate
+
+  @Benchmark
+  public List<Student> concatAddAll(Students s) {
+    final List<Student> combinedStudents = new ArrayList<>();
+    combinedStudents.addAll(s.firstHalf);
+    combinedStudents.addAll(s.secondHalf);
+    return combinedStudents;
+  }
+
+  @Benchmark
+  public Object concatStream(Students s, Execution e) {
+    if (e.boxed) {
+      return parallel(Stream.concat(s.firstHalf.stream(), s.secondHalf.stream()), e).collect(Collectors.toList());
+    }
+    return parallel(IntStream.concat(IntStream.of(s.firstHalfIds), IntStream.of(s.secondHalfIds)), e).toArray();
+  }
+
+  // ---------------------------------------------------------------------------------------------- reduce (total fees)
+
+  @Benchmark
+  public BigDecimal totalFeesLoop(Students s) {
+    BigDecimal totalFees = new BigDecimal("0.00");
+    for (Student student : s.students) {
+      totalFees = totalFees.add(student.getFee());
+    }
+    return totalFees;
+  }
+
+  @Benchmark
+  public BigDecimal totalFeesStream(Students s, Execution e) {
+    if (e.boxed) {
+      return stream(s.students, e)
+          .map(Student::getFee)
+          .reduce(new BigDecimal("0.00"), BigDecimal::add);
+    }
+    return BigDecimal.valueOf(s.table.feeCents(parallel(s.table.rows(), e)).sum(), 2);
+  }
+
+  // ---------------------------------------------------------------------------------------------------- max (max fee)
+
+  @Benchmark
+  public BigDecimal maxFeeLoop(Students s) {
+    BigDecimal maxFee = new BigDecimal("0.00");
+    for (Student student : s.students) {
+      if (student.getFee().compareTo(maxFee) > 0) {
+        maxFee = student.getFee();
+      }
+    }
+    return maxFee;
+  }
+
+  @Benchmark
+  public Object maxFeeStream(Students s, Execution e) {
+    if (e.boxed) {
+      return stream(s.students, e)
+          .map(Student::getFee)
+          .max(BigDecimal::compareTo);
+    }
+    return s.table.feeCents(parallel(s.table.rows(), e)).max();
+  }
+
+  private static <T> Stream<T> stream(List<T> list, Execution e) {
+    return e.parallel ? list.parallelStream() : list.stream();
+  }
+
+  private static <T> Stream<T> parallel(Stream<T> stream, Execution e) {
+    return e.parallel ? stream.parallel() : stream;
+  }
+
+  private static IntStream parallel(IntStream stream, Execution e) {
+    return e.parallel ? stream.parallel() : stream;
+  }
+}
@@ -27,6 +27,8 @@ import static org.hamcrest.collection.IsMapContaining.*;
 import static org.junit.Assert.*;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -134,6 +136,11 @@ public class StreamApiExamplesTest {
         .collect(Collectors.toList());
 
     assertThat(filteredStudents, contains(s2, s3));
+
+    // For large collections, an index on year of birth avoids scanning every student, and decoding their dates
+    filteredStudents = IndexedStudents.of(students).filter(IndexedStudents.bornAfter(yearOfBirthFilter))
+        .collect(Collectors.toList());
+    assertThat(filteredStudents, contains(s2, s3));
   }
 
   /**
@@ -158,6 +165,10 @@ public class StreamApiExamplesTest {
 
     assertThat(uniqueStudents, contains(s1, s2, s3, s4));
     assertThat(uniqueStudents, hasSize(students.size() - 1));
+
+    // Students are identified by a dense int id, so duplicates can instead be detected using a bitset of the ids seen
+    uniqueStudents = IntDistinct.distinct(students.stream(), Student::getId).collect(Collectors.toList());
+    assertThat(uniqueStudents, contains(s1, s2, s3, s4));
   }
 
   /**
@@ -219,6 +230,10 @@ public class StreamApiExamplesTest {
         .limit(2)
         .collect(Collectors.toList());
     assertThat(oldestTwoStudents, is(expectedStudents));
+
+    // Alternatively, select the two oldest using a bounded heap, in a single pass without sorting every student
+    oldestTwoStudents = students.stream().collect(MoreCollectors.oldest(2));
+    assertThat(oldestTwoStudents, is(expectedStudents));
   }
 
   // ---------------------------------------------------------------------------------------------------- Map operations
@@ -400,6 +415,17 @@ public class StreamApiExamplesTest {
         // Did anybody study sit an exam for this subject?
         .anyMatch(er -> er.getExam().equalsIgnoreCase("geography"));
     assertThat(geographyStudentsExist, is(false));
+
+    // The same query, comparing dictionary-encoded subject codes rather than subject names
+    geographyStudentsExist = students.stream()
+        .flatMap(student -> student.getExamResults().stream())
+        .anyMatch(SubjectDictionary.shared().isSubject("geography"));
+    assertThat(geographyStudentsExist, is(false));
+
+    // All three queries in a single pass over the exam results, which stops once every query is decided
+    final boolean[] matches = NestedMatch.anyMatch(students, Student::getExamResults, Arrays.asList(
+        er -> er.getScore() > 95, er -> er.getScore() == 100, SubjectDictionary.shared().isSubject("geography")), false);
+    assertThat(matches, is(new boolean[] { true, false, false }));
   }
 
   // --------------------------------------------------------------------------------------------------- Find operations
@@ -453,6 +479,11 @@ public class StreamApiExamplesTest {
     List<Student> studentsSortedByDob = students.stream().sorted(new Student.DobComparator()).collect(
         Collectors.toList());
     assertThat(studentsSortedByDob, contains(s4, s1, s3, s2));
+
+    // For large lists, sorting by a primitive key extracted once per student avoids decoding dates on every comparison
+    studentsSortedByDob = new ArrayList<>(students);
+    KeySort.sortByLongKey(studentsSortedByDob, s -> s.getDob().toEpochDay(), false);
+    assertThat(studentsSortedByDob, contains(s4, s1, s3, s2));
   }
 
   // ------------------------------------------------------------------------------------------------ Collect operations
@@ -561,6 +592,13 @@ public class StreamApiExamplesTest {
     assertThat(errorMessages, not(isEmptyOrNullString()));
     assertThat(errorMessages, startsWith("Field [" + error1.getFieldName()));
     assertThat(errorMessages, containsString("Field [" + error2.getFieldName()));
+
+    // A large report can instead be written straight to a Writer, without building each message or the joined String
+    StringWriter report = new StringWriter();
+    JoiningSink<FieldError> sink = JoiningSink.to(report, System.lineSeparator(), "", "", FieldError::appendTo);
+    fieldErrors.stream().forEach(sink);
+    sink.finish();
+    assertThat(report.toString(), is(errorMessages));
   }
 
   /**
@@ -588,9 +626,13 @@ public class StreamApiExamplesTest {
     assertThat(fieldErrorMessages.keySet(), hasSize(2));
     assertThat(fieldErrorMessages, hasEntry(is(error1.getFieldName()), is(error1.getMessage())));
     assertThat(fieldErrorMessages, hasEntry(is(error2.getFieldName()), is(error2.getMessage())));
+
+    // A presized map can instead be populated directly from the source map, skipping null values without a stream
+    assertThat(MapTransform.transformValues(fieldErrors, FieldError::getMessage, Long.MAX_VALUE),
+        is(fieldErrorMessages));
   }
 
-  class FieldError {
+  static class FieldError {
     private String fieldName;
     private String message;
 
@@ -606,6 +648,13 @@ public class StreamApiExamplesTest {
     public final String getMessage() {
       return this.message;
     }
+
+    /**
+     * Appends "Field [fieldName] message" to the supplied output, without creating an intermediate String.
+     */
+    final void appendTo(Appendable out) throws IOException {
+      out.append("Field [").append(this.fieldName).append("] ").append(this.message);
+    }
   }
 
   // ------------------------------------------------------------------------- Create Streams from data-sources & values
@@ -835,9 +884,9 @@ public class StreamApiExamplesTest {
    * Student domain object. Used to support these examples.
    */
   static class Student implements Comparable<Student> {
-    private static int lastId;
+    private static final IdAllocator ID_ALLOCATOR = new IdAllocator(1, 1024);
 
-    private static final BigDecimal STANDARD_FEE = new BigDecimal(650.72);
+    private static final BigDecimal STANDARD_FEE = new BigDecimal("650.72");
 
     private final int id;
     private final String email;
@@ -846,19 +895,41 @@ public class StreamApiExamplesTest {
     private final List<ExamResult> examResults;
     private final BigDecimal fee;
     private String country;
+    private List<Listener> listeners;
 
     Student(LocalDate dob, String email) {
       this(dob, email, STANDARD_FEE);
     }
 
     Student(LocalDate dob, String email, BigDecimal fee) {
-      this.id = ++Student.lastId;
+      this.id = ID_ALLOCATOR.nextId();
       this.dob = dob;
       this.email = email;
       this.examResults = new ArrayList<>();
       this.fee = fee;
     }
 
+    /**
+     * Creates a student with an existing id, e.g. when restoring a snapshot. The id is reserved, so that it isn't
+     * allocated to a student created later. It's the caller's responsibility to ensure that the id hasn't already been
+     * allocated, e.g. by restoring students before creating any new ones - see {@link IdAllocator#reserveThrough(int)}.
+     */
+    Student(int id, LocalDate dob, String email, BigDecimal fee) {
+      ID_ALLOCATOR.reserveThrough(id);
+      this.id = id;
+      this.dob = dob;
+      this.email = email;
+      this.examResults = new ArrayList<>();
+      this.fee = fee;
+    }
+
+    /**
+     * Reserves all the ids up to and including the supplied id, e.g. before restoring students with existing ids.
+     */
+    static void reserveIdsThrough(int id) {
+      ID_ALLOCATOR.reserveThrough(id);
+    }
+
     final int getId() {
       return this.id;
     }
@@ -876,11 +947,18 @@ public class StreamApiExamplesTest {
     }
 
     final void setGraduationDate(LocalDate graduationDate) {
+      final LocalDate previousGraduationDate = this.graduationDate;
       this.graduationDate = graduationDate;
+      if (this.listeners != null) {
+        this.listeners.forEach(l -> l.graduationDateChanged(this, previousGraduationDate));
+      }
     }
 
     void addExamResult(ExamResult examResult) {
       this.examResults.add(examResult);
+      if (this.listeners != null) {
+        this.listeners.forEach(l -> l.examResultAdded(this, examResult));
+      }
     }
 
     final List<ExamResult> getExamResults() {
@@ -899,6 +977,16 @@ public class StreamApiExamplesTest {
       this.country = country;
     }
 
+    /**
+     * @param listener A listener to be notified of subsequent changes to this student, e.g. to maintain an index.
+     */
+    void addListener(Listener listener) {
+      if (this.listeners == null) {
+        this.listeners = new ArrayList<>(1);
+      }
+      this.listeners.add(listener);
+    }
+
     @Override
     public int compareTo(Student s) {
       return (this.id < s.getId()) ? -1 : (this.id == s.getId()) ? 0 : 1;
@@ -948,6 +1036,15 @@ public class StreamApiExamplesTest {
         '}';
     }
 
+    /**
+     * Receives notification of changes to a {@link Student}.
+     */
+    interface Listener {
+      void examResultAdded(Student student, ExamResult examResult);
+
+      void graduationDateChanged(Student student, LocalDate previousGraduationDate);
+    }
+
     static class DobComparator implements Comparator<Student> {
       @Override
       public int compare(Student s1, Student s2) {
@@ -958,16 +1055,24 @@ public class StreamApiExamplesTest {
   }
 
   static class ExamResult {
-    private final String exam;
+    /** The code of the exam's name in the {@link SubjectDictionary#shared()} dictionary, in place of the name. */
+    private final int examCode;
     private final int score;
 
     public ExamResult(String exam, int score) {
-      this.exam = exam;
+      this.examCode = SubjectDictionary.shared().encodeName(exam);
       this.score = score;
     }
 
     public final String getExam() {
-      return this.exam;
+      return SubjectDictionary.shared().exactName(this.examCode);
+    }
+
+    /**
+     * @return The code of this result's exam subject in the {@link SubjectDictionary#shared()} dictionary.
+     */
+    public final int getSubjectCode() {
+      return SubjectDictionary.shared().subjectOf(this.examCode);
     }
 
     public final int getScore() {
@@ -979,7 +1084,7 @@ public class StreamApiExamplesTest {
     public String toString() {
       StringBuilder builder = new StringBuilder();
       builder.append("ExamResult [exam=");
-      builder.append(exam);
+      builder.append(getExam());
       builder.append(", score=");
       builder.append(score);
       builder.append("]");
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.ExamResult;
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * A compact, versioned binary snapshot of a dataset of {@link Student}s, including their exam results and fees, which
+ * can be restored far faster than the students can be rebuilt by parsing text.
+ * <p>
+ * A snapshot consists of the following sections, all little-endian -
+ * <ol>
+ * <li>A header - a magic no., the format version, the no. of students and the no. of strings.</li>
+ * <li>A string table of each distinct email, country and exam subject, each a length-prefixed UTF-8 string. Strings
+ * are referenced elsewhere by their index in the table, or -1 for null.</li>
+ * <li>Fixed-width sections, each holding one field of every student - id (int), date of birth and graduation date
+ * (long epoch day, or {@link Long#MIN_VALUE} for null), fee (long unscaled value and byte scale), email and country
+ * (int string index).</li>
+ * <li>The exam results of each student - the no. of results, followed by the subject string index and score of each
+ * result (-1 for a null subject), all varint-encoded (scores are zig-zag encoded).</li>
+ * </ol>
+ * The fixed-width sections are bulk-copied between arrays and a direct buffer, and the file is read and written using a
+ * {@link FileChannel}, so there's no per-field stream or object overhead.
+ * <p>
+ * Restored students keep their ids, which are reserved so that they aren't allocated to students created later. A
+ * snapshot should be read before any new student is created, as ids which have already been allocated can't be
+ * detected, so could be duplicated.
+ */
+final class StudentSnapshot {
+
+  static final int MAGIC = 0x53545544;
+  static final int VERSION = 1;
+
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+  private static final long NULL_DATE = Long.MIN_VALUE;
+  private static final byte NULL_SCALE = Byte.MIN_VALUE;
+  private static final int NULL_STRING = -1;
+
+  private StudentSnapshot() {
+  }
+
+  /**
+   * @param students The students to write.
+   * @param path The path of the snapshot file, which is created or replaced.
+   * @throws IOException If the file can't be written.
+   * @throws IllegalArgumentException If a student's fee can't be represented in the snapshot, i.e. its unscaled value
+   * doesn't fit in a long, or its scale in a byte.
+   */
+  static void write(Collection<Student> students, Path path) throws IOException {
+    write(students, path, DEFAULT_BUFFER_SIZE);
+  }
+
+  static void write(Collection<Student> students, Path path, int bufferSize) throws IOException {
+    final int n = students.size();
+    final StringTable strings = new StringTable();
+    final int[] ids = new int[n];
+    final long[] dobs = new long[n];
+    final long[] graduationDates = new long[n];
+    final long[] feeUnscaled = new long[n];
+    final byte[] feeScales = new byte[n];
+    final int[] emails = new int[n];
+    final int[] countries = new int[n];
+    int i = 0;
+    for (Student student : students) {
+      ids[i] = student.getId();
+      dobs[i] = epochDay(student.getDob());
+      graduationDates[i] = epochDay(student.getGraduationDate());
+      feeScales[i] = NULL_SCALE;
+      final BigDecimal fee = student.getFee();
+      if (fee != null) {
+        if (fee.unscaledValue().bitLength() > 63 || fee.scale() <= NULL_SCALE || fee.scale() > Byte.MAX_VALUE) {
+          throw new IllegalArgumentException("Fee [" + fee + "] of student [" + student.getId() + "] is out of range");
+        }
+        feeUnscaled[i] = fee.unscaledValue().longValue();
+        feeScales[i] = (byte) fee.scale();
+      }
+      emails[i] = strings.indexOf(student.getEmail());
+      countries[i] = strings.indexOf(student.getCountry());
+      for (ExamResult er : student.getExamResults()) {
+        strings.indexOf(er.getExam());
+      }
+      i++;
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      final Output out = new Output(channel, bufferSize);
+      out.ensure(16);
+      out.buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(strings.size());
+      for (byte[] bytes : strings.bytes) {
+        out.ensure(4);
+        out.buffer.putInt(bytes.length);
+        out.putBytes(bytes);
+      }
+      out.putInts(ids);
+      out.putLongs(dobs);
+      out.putLongs(graduationDates);
+      out.putLongs(feeUnscaled);
+      out.putBytes(feeScales);
+      out.putInts(emails);
+      out.putInts(countries);
+      for (Student student : students) {
+        final List<ExamResult> examResults = student.getExamResults();
+        out.putVarint(examResults.size());
+        for (ExamResult er : examResults) {
+          out.putVarint(strings.indexOf(er.getExam()));
+          out.putVarint((er.getScore() << 1) ^ (er.getScore() >> 31));
+        }
+      }
+      out.flush();
+    }
+  }
+
+  /**
+   * @param path The path of a snapshot file.
+   * @return The students in the snapshot, in the order they were written.
+   * @throws IOException If the file can't be read, or isn't a snapshot of a supported version.
+   */
+  static List<Student> read(Path path) throws IOException {
+    return read(path, DEFAULT_BUFFER_SIZE);
+  }
+
+  static List<Student> read(Path path, int bufferSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final Input in = new Input(channel, bufferSize);
+      in.ensure(16);
+      if (in.buffer.getInt() != MAGIC) {
+        throw new IOException("Not a student snapshot [" + path + "]");
+      }
+      final int version = in.buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported snapshot version [" + version + "]");
+      }
+      final int n = in.buffer.getInt();
+      final String[] strings = new String[in.buffer.getInt()];
+      for (int i = 0; i < strings.length; i++) {
+        in.ensure(4);
+        strings[i] = new String(in.getBytes(new byte[in.buffer.getInt()]), StandardCharsets.UTF_8);
+      }
+      final int[] ids = in.getInts(new int[n]);
+      final long[] dobs = in.getLongs(new long[n]);
+      final long[] graduationDates = in.getLongs(new long[n]);
+      final long[] feeUnscaled = in.getLongs(new long[n]);
+      final byte[] feeScales = in.getBytes(new byte[n]);
+      final int[] emails = in.getInts(new int[n]);
+      final int[] countries = in.getInts(new int[n]);
+
+      int maxId = -1;
+      for (int id : ids) {
+        maxId = Math.max(maxId, id);
+      }
+      // Reserve all the ids at once, rather than one student at a time
+      Student.reserveIdsThrough(maxId);
+
+      final List<Student> students = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        final BigDecimal fee = feeScales[i] == NULL_SCALE ? null : BigDecimal.valueOf(feeUnscaled[i], feeScales[i]);
+        final Student student = new Student(ids[i], date(dobs[i]), string(strings, emails[i]), fee);
+        student.setGraduationDate(date(graduationDates[i]));
+        student.setCountry(string(strings, countries[i]));
+        for (int results = in.getVarint(); results > 0; results--) {
+          final String exam = string(strings, in.getVarint());
+          final int zigZagScore = in.getVarint();
+          student.addExamResult(new ExamResult(exam, (zigZagScore >>> 1) ^ -(zigZagScore & 1)));
+        }
+        students.add(student);
+      }
+      return students;
+    }
+  }
+
+  private static long epochDay(LocalDate date) {
+    return date == null ? NULL_DATE : date.toEpochDay();
+  }
+
+  private static LocalDate date(long epochDay) {
+    return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+  }
+
+  private static String string(String[] strings, int index) {
+    return index == NULL_STRING ? null : strings[index];
+  }
+
+  /**
+   * The table of distinct strings written to a snapshot.
+   */
+  private static final class StringTable {
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<byte[]> bytes = new ArrayList<>();
+
+    int indexOf(String s) {
+      if (s == null) {
+        return NULL_STRING;
+      }
+      return this.indexes.computeIfAbsent(s, k -> {
+        this.bytes.add(k.getBytes(StandardCharsets.UTF_8));
+        return this.bytes.size() - 1;
+      });
+    }
+
+    int size() {
+      return this.bytes.size();
+    }
+  }
+
+  /**
+   * A direct buffer, which is written to a channel whenever it fills.
+   */
+  private static final class Output {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    Output(FileChannel channel, int bufferSize) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 16)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    void ensure(int bytes) throws IOException {
+      if (this.buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    void flush() throws IOException {
+      this.buffer.flip();
+      while (this.buffer.hasRemaining()) {
+        this.channel.write(this.buffer);
+      }
+      this.buffer.clear();
+    }
+
+    void putVarint(int value) throws IOException {
+      ensure(5);
+      while ((value & ~0x7F) != 0) {
+        this.buffer.put((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      this.buffer.put((byte) value);
+    }
+
+    void putBytes(byte[] values) throws IOException {
+      for (int i = 0; i < values.length; ) {
+        ensure(1);
+        final int count = Math.min(values.length - i, this.buffer.remaining());
+        this.buffer.put(values, i, count);
+        i += count;
+      }
+    }
+
+    void putInts(int[] values) throws IOException {
+      for (int i = 0; i < values.length; ) {
+        ensure(Integer.BYTES);
+        final int count = Math.min(values.length - i, this.buffer.remaining() / Integer.BYTES);
+        this.buffer.asIntBuffer().put(values, i, count);
+        this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+        i += count;
+      }
+    }
+
+    void putLongs(long[] values) throws IOException {
+      for (int i = 0; i < values.length; ) {
+        ensure(Long.BYTES);
+        final int count = Math.min(values.length - i, this.buffer.remaining() / Long.BYTES);
+        this.buffer.asLongBuffer().put(values, i, count);
+        this.buffer.position(this.buffer.position() + count * Long.BYTES);
+        i += count;
+      }
+    }
+  }
+
+  /**
+   * A direct buffer, which is refilled from a channel whenever it's exhausted.
+   */
+  private static final class Input {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    Input(FileChannel channel, int bufferSize) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 16)).order(ByteOrder.LITTLE_ENDIAN);
+      this.buffer.flip();
+    }
+
+    void ensure(int bytes) throws IOException {
+      if (this.buffer.remaining() >= bytes) {
+        return;
+      }
+      this.buffer.compact();
+      while (this.buffer.position() < bytes) {
+        if (this.channel.read(this.buffer) < 0) {
+          throw new EOFException("Truncated snapshot");
+        }
+      }
+      this.buffer.flip();
+    }
+
+    int getVarint() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        ensure(1);
+        final byte b = this.buffer.get();
+        value |= (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint");
+    }
+
+    byte[] getBytes(byte[] values) throws IOException {
+      for (int i = 0; i < values.length; ) {
+        ensure(1);
+        final int count = Math.min(values.length - i, this.buffer.remaining());
+        this.buffer.get(values, i, count);
+        i += count;
+      }
+      return values;
+    }
+
+    int[] getInts(int[] values) throws IOException {
+      for (int i = 0; i < values.length; ) {
+        ensure(Integer.BYTES);
+        final int count = Math.min(values.length - i, this.buffer.remaining() / Integer.BYTES);
+        this.buffer.asIntBuffer().get(values, i, count);
+        this.buffer.position(this.buffer.position() + count * Integer.BYTES);
+        i += count;
+      }
+      return values;
+    }
+
+    long[] getLongs(long[] values) throws IOException {
+      for (int i = 0; i < values.length; ) {
+        ensure(Long.BYTES);
+        final int count = Math.min(values.length - i, this.buffer.remaining() / Long.BYTES);
+        this.buffer.asLongBuffer().get(values, i, count);
+        this.buffer.position(this.buffer.position() + count * Long.BYTES);
+        i += count;
+      }
+      return values;
+    }
+  }
+}
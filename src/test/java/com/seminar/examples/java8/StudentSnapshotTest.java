@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.ExamResult;
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Tests for {@link StudentSnapshot}.
+ */
+public class StudentSnapshotTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    final Student s1 = new Student(LocalDate.of(1990, 1, 15), "jsmith@example.com");
+    s1.setCountry("Wales");
+    s1.setGraduationDate(LocalDate.of(2012, 7, 1));
+    s1.addExamResult(new ExamResult("Maths", 72));
+    s1.addExamResult(new ExamResult("Physics", -3));
+    final Student s2 = new Student(LocalDate.of(1991, 6, 2), null, new BigDecimal("1200.5"));
+    s2.addExamResult(new ExamResult("Maths", 300));
+    s2.addExamResult(new ExamResult(null, 40));
+    final Student s3 = new Student(LocalDate.of(1989, 12, 31), "ñandú@example.com", null);
+    final Path path = this.folder.newFile().toPath();
+
+    // A tiny buffer, so that every section spans several buffers
+    StudentSnapshot.write(Arrays.asList(s1, s2, s3), path, 16);
+    final List<Student> restored = StudentSnapshot.read(path, 16);
+
+    assertThat(restored.size(), is(3));
+    assertThat(restored.get(0).toString(), is(s1.toString()));
+    assertThat(restored.get(1).toString(), is(s2.toString()));
+    assertThat(restored.get(2).toString(), is(s3.toString()));
+    assertThat(restored.get(1).getCountry(), is(nullValue()));
+    assertThat(restored.get(1).getFee().scale(), is(1));
+    assertThat(restored.get(0).getExamResults().get(1).getScore(), is(-3));
+    assertThat(restored.get(1).getExamResults().get(1).getExam(), is(nullValue()));
+  }
+
+  @Test
+  public void testRestoredIdsAreNotReallocated() throws IOException {
+    final Path path = this.folder.newFile().toPath();
+    final int id = new Student(LocalDate.of(1990, 1, 1), "a@example.com").getId() + 10_000;
+    StudentSnapshot.write(Arrays.asList(new Student(id, LocalDate.of(1990, 1, 1), "b@example.com", null)), path);
+
+    assertThat(StudentSnapshot.read(path).get(0).getId(), is(id));
+    assertThat(new Student(LocalDate.of(1990, 1, 1), "c@example.com").getId(), greaterThan(id));
+  }
+
+  @Test
+  public void testManyStudents() throws IOException {
+    final List<Student> students = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      final Student student = new Student(LocalDate.ofEpochDay(i), "student" + i + "@example.com");
+      student.setCountry(i % 2 == 0 ? "Wales" : "Scotland");
+      for (int j = 0; j < i % 4; j++) {
+        student.addExamResult(new ExamResult("Subject " + j, i % 101));
+      }
+      students.add(student);
+    }
+    final Path path = this.folder.newFile().toPath();
+
+    StudentSnapshot.write(students, path);
+    final List<Student> restored = StudentSnapshot.read(path);
+
+    for (int i = 0; i < students.size(); i++) {
+      assertThat(restored.get(i).toString(), is(students.get(i).toString()));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnsupportedVersion() throws IOException {
+    final Path path = this.folder.newFile().toPath();
+    Files.write(path, ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(StudentSnapshot.MAGIC).putInt(StudentSnapshot.VERSION + 1).array());
+
+    StudentSnapshot.read(path);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFeeOutOfRange() throws IOException {
+    final Student student = new Student(LocalDate.of(1990, 1, 1), "a@example.com", new BigDecimal("1e-200"));
+
+    StudentSnapshot.write(Arrays.asList(student), this.folder.newFile().toPath());
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * A columnar (struct-of-arrays) representation of a set of {@link Student}, for use when processing very large numbers
+ * of students using the Streams API.
+ * <p>
+ * Rather than holding one heap object per student (each with its own {@link LocalDate}, {@link BigDecimal} and
+ * collection of exam results) each attribute is stored in its own primitive array, indexed by row. Dates of birth are
+ * stored as epoch days, fees as a whole number of cents, and the low cardinality (country) and repeated (email) string
+ * attributes are dictionary-encoded, so each row references a shared string by its int code.
+ * <p>
+ * Rows are processed using an {@link IntStream} of row indexes, which avoids pointer chasing, object headers and boxing
+ * in the pipeline. Column values are only decoded back to objects (e.g. a {@link LocalDate}) when projected.
+ */
+final class StudentTable {
+
+  /** Dictionary code used for a null string value, e.g. a student who has no country. */
+  static final int NULL_CODE = -1;
+
+  private static final int FEE_SCALE = 2;
+
+  private final int size;
+  private final int[] id;
+  private final int[] dobEpochDay;
+  private final long[] feeCents;
+  private final int[] countryCode;
+  private final int[] emailCode;
+  private final String[] countries;
+  private final String[] emails;
+  private final Map<String, Integer> countryCodes;
+
+  private StudentTable(Builder builder) {
+    this.size = builder.size;
+    this.id = Arrays.copyOf(builder.id, builder.size);
+    this.dobEpochDay = Arrays.copyOf(builder.dobEpochDay, builder.size);
+    this.feeCents = Arrays.copyOf(builder.feeCents, builder.size);
+    this.countryCode = Arrays.copyOf(builder.countryCode, builder.size);
+    this.emailCode = Arrays.copyOf(builder.emailCode, builder.size);
+    this.countries = builder.countries.values();
+    this.emails = builder.emails.values();
+    this.countryCodes = new HashMap<>(builder.countries.codes);
+  }
+
+  /**
+   * @param students The students to be stored in the table, in row order.
+   * @return A new table containing one row per supplied student.
+   * @throws ArithmeticException If a student's fee can't be represented exactly as a whole number of cents.
+   */
+  static StudentTable of(List<Student> students) {
+    final Builder builder = builder(students.size());
+    for (Student s : students) {
+      builder.add(s.getId(), s.getDob(), s.getFee(), s.getCountry(), s.getEmail());
+    }
+    return builder.build();
+  }
+
+  /**
+   * @param expectedSize The expected no. of rows, used to presize the columns.
+   * @return A new {@link Builder} for creating a table row by row, without first creating any {@link Student}.
+   */
+  static Builder builder(int expectedSize) {
+    return new Builder(expectedSize);
+  }
+
+  /**
+   * @return The no. of rows (students) in the table.
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * @return An ordered stream of the index of every row in the table.
+   */
+  IntStream rows() {
+    return IntStream.range(0, this.size);
+  }
+
+  /**
+   * @param predicate A predicate which is supplied a row index, and typically tests one or more of its column values.
+   * @return An ordered stream of the index of the rows which match the supplied predicate.
+   */
+  IntStream filter(IntPredicate predicate) {
+    return rows().filter(predicate);
+  }
+
+  /**
+   * Columnar equivalent of filtering students by {@code s -> s.getDob().getYear() > year}. The year is converted to an
+   * epoch day once, so each row is tested using a single int comparison, with no date decoding.
+   *
+   * @param year The year of birth.
+   * @return An ordered stream of the index of the rows for students born after the supplied year.
+   */
+  IntStream bornAfterYear(int year) {
+    final int lastDayOfYear = (int) LocalDate.of(year, 12, 31).toEpochDay();
+    return filter(row -> this.dobEpochDay[row] > lastDayOfYear);
+  }
+
+  /**
+   * @param countryName The name of a country.
+   * @return An ordered stream of the index of the rows for students in the supplied country.
+   */
+  IntStream inCountry(String countryName) {
+    final int code = countryCode(countryName);
+    return code == NULL_CODE && countryName != null ? IntStream.empty() : filter(row -> this.countryCode[row] == code);
+  }
+
+  // ----------------------------------------------------------------------------------------------------- Column values
+
+  int id(int row) {
+    return this.id[row];
+  }
+
+  int dobEpochDay(int row) {
+    return this.dobEpochDay[row];
+  }
+
+  LocalDate dob(int row) {
+    return LocalDate.ofEpochDay(this.dobEpochDay[row]);
+  }
+
+  long feeCents(int row) {
+    return this.feeCents[row];
+  }
+
+  BigDecimal fee(int row) {
+    return BigDecimal.valueOf(this.feeCents[row], FEE_SCALE);
+  }
+
+  String email(int row) {
+    final int code = this.emailCode[row];
+    return code == NULL_CODE ? null : this.emails[code];
+  }
+
+  String country(int row) {
+    final int code = this.countryCode[row];
+    return code == NULL_CODE ? null : this.countries[code];
+  }
+
+  /**
+   * @param countryName The name of a country.
+   * @return The dictionary code of the supplied country, or {@link #NULL_CODE} if no student is in the country.
+   */
+  int countryCode(String countryName) {
+    final Integer code = countryName == null ? null : this.countryCodes.get(countryName);
+    return code == null ? NULL_CODE : code;
+  }
+
+  // ------------------------------------------------------------------------------------------------------- Projections
+
+  /**
+   * @param rows A stream of row indexes.
+   * @return A stream of the ids of the students in the supplied rows.
+   */
+  IntStream ids(IntStream rows) {
+    return rows.map(row -> this.id[row]);
+  }
+
+  /**
+   * @param rows A stream of row indexes.
+   * @return A stream of the email addresses of the students in the supplied rows. No strings are created, the
+   * addresses are shared with the table's dictionary.
+   */
+  Stream<String> emails(IntStream rows) {
+    return rows.mapToObj(this::email);
+  }
+
+  /**
+   * @param rows A stream of row indexes.
+   * @return A stream of the fees, in cents, of the students in the supplied rows.
+   */
+  LongStream feeCents(IntStream rows) {
+    return rows.mapToLong(row -> this.feeCents[row]);
+  }
+
+  /**
+   * Builds a {@link StudentTable} row by row, growing its columns as required.
+   */
+  static final class Builder {
+    private int size;
+    private int[] id;
+    private int[] dobEpochDay;
+    private long[] feeCents;
+    private int[] countryCode;
+    private int[] emailCode;
+    private final Dictionary countries = new Dictionary();
+    private final Dictionary emails = new Dictionary();
+
+    private Builder(int expectedSize) {
+      final int capacity = Math.max(expectedSize, 16);
+      this.id = new int[capacity];
+      this.dobEpochDay = new int[capacity];
+      this.feeCents = new long[capacity];
+      this.countryCode = new int[capacity];
+      this.emailCode = new int[capacity];
+    }
+
+    /**
+     * @throws ArithmeticException If the supplied fee can't be represented exactly as a whole number of cents.
+     */
+    Builder add(int studentId, LocalDate dob, BigDecimal fee, String country, String email) {
+      if (this.size == this.id.length) {
+        grow();
+      }
+      final int row = this.size++;
+      this.id[row] = studentId;
+      this.dobEpochDay[row] = Math.toIntExact(dob.toEpochDay());
+      this.feeCents[row] = fee.setScale(FEE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+      this.countryCode[row] = this.countries.encode(country);
+      this.emailCode[row] = this.emails.encode(email);
+      return this;
+    }
+
+    StudentTable build() {
+      return new StudentTable(this);
+    }
+
+    private void grow() {
+      final int capacity = this.id.length + (this.id.length >> 1);
+      this.id = Arrays.copyOf(this.id, capacity);
+      this.dobEpochDay = Arrays.copyOf(this.dobEpochDay, capacity);
+      this.feeCents = Arrays.copyOf(this.feeCents, capacity);
+      this.countryCode = Arrays.copyOf(this.countryCode, capacity);
+      this.emailCode = Arrays.copyOf(this.emailCode, capacity);
+    }
+  }
+
+  /**
+   * Assigns each distinct string a dense int code, in order of first appearance.
+   */
+  private static final class Dictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+
+    int encode(String value) {
+      if (value == null) {
+        return NULL_CODE;
+      }
+      Integer code = this.codes.get(value);
+      if (code == null) {
+        code = this.codes.size();
+        if (code == this.values.length) {
+          this.values = Arrays.copyOf(this.values, code * 2);
+        }
+        this.values[code] = value;
+        this.codes.put(value, code);
+      }
+      return code;
+    }
+
+    String[] values() {
+      return Arrays.copyOf(this.values, this.codes.size());
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Tests that the columnar {@link StudentTable} gives the same results as the equivalent {@link Student} based stream
+ * pipelines in {@link StreamApiExamplesTest}.
+ */
+public class StudentTableTest {
+
+  private List<Student> students;
+  private StudentTable table;
+
+  @Before
+  public void setUp() {
+    this.students = new ArrayList<>();
+    final Student s1 = new Student(LocalDate.of(1974, Month.JUNE, 21), "joe.bloggs@test.net", new BigDecimal("891.32"));
+    s1.setCountry("UK");
+    this.students.add(s1);
+    final Student s2 = new Student(LocalDate.of(1980, Month.JANUARY, 2), "jane.bloggs@test.net");
+    s2.setCountry("Netherlands");
+    this.students.add(s2);
+    final Student s3 = new Student(s1.getDob(), "jim.bloggs@test.net", new BigDecimal("578.5"));
+    s3.setCountry("Sweden");
+    this.students.add(s3);
+    final Student s4 = new Student(LocalDate.of(1973, Month.JULY, 12), "nellie.bloggs@test.net");
+    s4.setCountry("UK");
+    this.students.add(s4);
+    this.students.add(new Student(LocalDate.of(1976, Month.DECEMBER, 31), "no.country@test.net"));
+    this.students.add(new Student(LocalDate.of(1982, Month.MAY, 5), null));
+    this.table = StudentTable.of(this.students);
+  }
+
+  @Test
+  public void testFilter() {
+    final List<Integer> expectedIds = this.students.stream()
+        .filter(s -> s.getDob().getYear() > 1975)
+        .map(Student::getId)
+        .collect(toList());
+
+    final List<Integer> ids = this.table.ids(this.table.bornAfterYear(1975)).boxed().collect(toList());
+
+    assertThat(ids, is(expectedIds));
+  }
+
+  @Test
+  public void testMap() {
+    final List<String> expectedEmails = this.students.stream().map(Student::getEmail).collect(toList());
+
+    assertThat(this.table.emails(this.table.rows()).collect(toList()), is(expectedEmails));
+    assertThat(this.table.email(5), is((String) null));
+  }
+
+  @Test
+  public void testCollectGroupingBy() {
+    final Map<LocalDate, List<Integer>> expectedIdsByDob = this.students.stream()
+        .collect(groupingBy(Student::getDob, mapping(Student::getId, toList())));
+
+    final Map<LocalDate, List<Integer>> idsByDob = this.table.rows().boxed()
+        .collect(groupingBy(this.table::dob, mapping(this.table::id, toList())));
+
+    assertThat(idsByDob, is(expectedIdsByDob));
+  }
+
+  @Test
+  public void testCollectCascadingGroupByWithSecondaryFunction() {
+    final Set<String> expectedUkEmails = this.students.stream()
+        .filter(s -> "UK".equals(s.getCountry()))
+        .map(Student::getEmail)
+        .collect(toSet());
+
+    assertThat(this.table.emails(this.table.inCountry("UK")).collect(toSet()), is(expectedUkEmails));
+    assertThat(this.table.inCountry("France").count(), is(0L));
+    assertThat(this.table.country(4), is((String) null));
+  }
+
+  @Test
+  public void testFees() {
+    final BigDecimal expectedTotalFees = this.students.stream().map(Student::getFee).reduce(BigDecimal.ZERO,
+        BigDecimal::add);
+
+    final long totalFeeCents = this.table.feeCents(this.table.rows()).sum();
+
+    assertThat(BigDecimal.valueOf(totalFeeCents, 2).compareTo(expectedTotalFees), is(0));
+    assertThat(this.table.fee(2), is(new BigDecimal("578.50")));
+  }
+
+  @Test
+  public void testBuilderGrowsColumns() {
+    final StudentTable.Builder builder = StudentTable.builder(0);
+    for (int i = 0; i < 100; i++) {
+      builder.add(i, LocalDate.ofEpochDay(i), BigDecimal.ONE, i % 2 == 0 ? "UK" : "Sweden", "s" + i + "@test.net");
+    }
+    final StudentTable bigTable = builder.build();
+
+    assertThat(bigTable.size(), is(100));
+    assertThat(bigTable.inCountry("Sweden").count(), is(50L));
+    assertThat(bigTable.email(99), is("s99@test.net"));
+    assertThat(bigTable.ids(bigTable.filter(row -> bigTable.dobEpochDay(row) < 3)).boxed().collect(toList()),
+        contains(0, 1, 2));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testFeeWhichIsNotAWholeNoOfCentsIsRejected() {
+    StudentTable.builder(1).add(1, LocalDate.now(), new BigDecimal("1.001"), null, "a@test.net");
+  }
+}
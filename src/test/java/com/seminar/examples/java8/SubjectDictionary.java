@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.ExamResult;
+
+/**
+ * A dictionary which encodes the (relatively few) distinct exam subject names as small int codes, so that each
+ * {@link ExamResult} holds a single int code in place of its exam's name, and predicates on the subject of an exam
+ * result compile to an int comparison, rather than a case-insensitive string comparison per result (see
+ * {@link StreamApiExamplesTest#testAnyMatch()}).
+ * <p>
+ * Subject codes are case-insensitive, like {@link String#equalsIgnoreCase}, e.g. "Maths" and "maths" are encoded as
+ * the same subject code. So that an exam
+ * result can still return the exact name it was created with, each distinct spelling of a subject also has its own
+ * name code, which is what an exam result holds, and which maps to both the name and its subject code. A null name is
+ * encoded as {@link #NULL_NAME}, which has no subject. As each name is held once, by the dictionary, results for the
+ * same subject share a single String instance.
+ * <p>
+ * The dictionary is thread-safe. Looking up an existing subject or name doesn't lock.
+ */
+final class SubjectDictionary {
+
+  /** The code of a subject which isn't in the dictionary. */
+  static final int UNKNOWN = -1;
+
+  /** The name code of a null name. */
+  static final int NULL_NAME = -1;
+
+  private static final SubjectDictionary SHARED = new SubjectDictionary();
+
+  private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+  private final Map<String, Integer> nameCodes = new ConcurrentHashMap<>();
+  private volatile String[] namesByCode = new String[0];
+  /** The names, and their subject codes, by name code, replaced together when a name is added. */
+  private volatile Names names = new Names(new String[0], new int[0]);
+
+  /**
+   * @return The dictionary shared by all {@link ExamResult}.
+   */
+  static SubjectDictionary shared() {
+    return SHARED;
+  }
+
+  /**
+   * @param subject The name of a subject.
+   * @return The code of the supplied subject, adding it to the dictionary if it isn't already present.
+   */
+  int encode(String subject) {
+    final Integer code = this.codes.get(key(subject));
+    return code != null ? code : add(subject);
+  }
+
+  /**
+   * @param subject The name of a subject.
+   * @return The code of the supplied subject, or {@link #UNKNOWN} if it isn't in the dictionary.
+   */
+  int lookup(String subject) {
+    final Integer code = this.codes.get(key(subject));
+    return code == null ? UNKNOWN : code;
+  }
+
+  /**
+   * @param code The code of a subject.
+   * @return The name of the subject, as first added to the dictionary.
+   */
+  String name(int code) {
+    return this.namesByCode[code];
+  }
+
+  /**
+   * @param name The exact name of a subject, or null.
+   * @return The code of the supplied name (case-sensitive), adding it (and its subject) to the dictionary if it isn't
+   * already present, or {@link #NULL_NAME} if it's null.
+   */
+  int encodeName(String name) {
+    if (name == null) {
+      return NULL_NAME;
+    }
+    final Integer nameCode = this.nameCodes.get(name);
+    return nameCode != null ? nameCode : addName(name);
+  }
+
+  /**
+   * @param nameCode The code of a name.
+   * @return The name, or null for {@link #NULL_NAME}.
+   */
+  String exactName(int nameCode) {
+    return nameCode == NULL_NAME ? null : this.names.names[nameCode];
+  }
+
+  /**
+   * @param nameCode The code of a name.
+   * @return The code of the name's subject, or {@link #UNKNOWN} for {@link #NULL_NAME}.
+   */
+  int subjectOf(int nameCode) {
+    return nameCode == NULL_NAME ? UNKNOWN : this.names.subjects[nameCode];
+  }
+
+  /**
+   * @param subject The name of a subject, or null.
+   * @return The single shared String instance which is equal to the supplied subject name.
+   */
+  String intern(String subject) {
+    return exactName(encodeName(subject));
+  }
+
+  /**
+   * @return The no. of distinct subjects in the dictionary.
+   */
+  int size() {
+    return this.namesByCode.length;
+  }
+
+  /**
+   * @param subject The name of a subject, matched case-insensitively, which is added to the dictionary if it isn't
+   * already present, so that the predicate also matches results for the subject which are created later.
+   * @return A predicate which tests whether an exam result is for the supplied subject, by comparing subject codes.
+   */
+  Predicate<ExamResult> isSubject(String subject) {
+    final int code = encode(subject);
+    return er -> er.getSubjectCode() == code;
+  }
+
+  private synchronized int add(String subject) {
+    final String key = key(subject);
+    final Integer existingCode = this.codes.get(key);
+    if (existingCode != null) {
+      return existingCode;
+    }
+    final int code = this.namesByCode.length;
+    final String[] namesByCode = Arrays.copyOf(this.namesByCode, code + 1);
+    namesByCode[code] = subject;
+    // Publish the name before the code, so that a code is never visible without its name
+    this.namesByCode = namesByCode;
+    this.codes.put(key, code);
+    return code;
+  }
+
+  private synchronized int addName(String name) {
+    final Integer existingNameCode = this.nameCodes.get(name);
+    if (existingNameCode != null) {
+      return existingNameCode;
+    }
+    final int subject = encode(name);
+    final Names names = this.names;
+    final int nameCode = names.names.length;
+    final Names added = new Names(Arrays.copyOf(names.names, nameCode + 1),
+        Arrays.copyOf(names.subjects, nameCode + 1));
+    added.names[nameCode] = name;
+    added.subjects[nameCode] = subject;
+    // Publish the name before its code, so that a name code is never visible without its name
+    this.names = added;
+    this.nameCodes.put(name, nameCode);
+    return nameCode;
+  }
+
+  /**
+   * @return The supplied subject with each char case-folded the same way as {@link String#equalsIgnoreCase}, i.e.
+   * converted to upper case then to lower case, so that two subjects have the same key if (and only if) they're equal
+   * ignoring case. (Unlike {@link String#toLowerCase}, this doesn't depend on a locale, or map a char to several.)
+   */
+  private static String key(String subject) {
+    final char[] chars = subject.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+    }
+    return new String(chars);
+  }
+
+  private static final class Names {
+    private final String[] names;
+    private final int[] subjects;
+
+    Names(String[] names, int[] subjects) {
+      this.names = names;
+      this.subjects = subjects;
+    }
+  }
+}
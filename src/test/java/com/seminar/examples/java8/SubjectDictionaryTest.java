@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.ExamResult;
+
+/**
+ * Tests for {@link SubjectDictionary}.
+ */
+public class SubjectDictionaryTest {
+
+  @Test
+  public void testCodesAreDenseAndCaseInsensitive() {
+    final SubjectDictionary dictionary = new SubjectDictionary();
+
+    assertThat(dictionary.encode("Maths"), is(0));
+    assertThat(dictionary.encode("Physics"), is(1));
+    assertThat(dictionary.encode("MATHS"), is(0));
+    assertThat(dictionary.lookup("physics"), is(1));
+    assertThat(dictionary.lookup("Geography"), is(SubjectDictionary.UNKNOWN));
+    assertThat(dictionary.size(), is(2));
+    assertThat(dictionary.name(0), is("Maths"));
+  }
+
+  @Test
+  public void testInternSharesInstances() {
+    final SubjectDictionary dictionary = new SubjectDictionary();
+    final String maths = dictionary.intern("Maths");
+
+    assertThat(dictionary.intern(new String("Maths")), sameInstance(maths));
+    assertThat(new ExamResult(new String("Maths"), 1).getExam(),
+        sameInstance(new ExamResult(new String("Maths"), 2).getExam()));
+  }
+
+  @Test
+  public void testIsSubject() {
+    final List<ExamResult> results = Arrays.asList(new ExamResult("Maths", 60), new ExamResult("Physics", 70),
+        new ExamResult("maths", 80));
+    final Predicate<ExamResult> isMaths = SubjectDictionary.shared().isSubject("MATHS");
+
+    assertThat(results.stream().filter(isMaths).count(), is(2L));
+    assertThat(results.stream().anyMatch(SubjectDictionary.shared().isSubject("No such subject")), is(false));
+    assertThat(results.get(2).getSubjectCode(), is(results.get(0).getSubjectCode()));
+  }
+
+  @Test
+  public void testIsSubjectMatchesResultsCreatedLater() {
+    final Predicate<ExamResult> isAstronomy = SubjectDictionary.shared().isSubject("Astronomy");
+
+    assertThat(isAstronomy.test(new ExamResult("ASTRONOMY", 90)), is(true));
+    assertThat(isAstronomy.test(new ExamResult("Astrology", 90)), is(false));
+  }
+
+  @Test
+  public void testCodesFoldCaseLikeEqualsIgnoreCase() {
+    final SubjectDictionary dictionary = new SubjectDictionary();
+    // The dotless i upper-cases to I, so is equal to i ignoring case, although it isn't lower-cased to i
+    final String dotlessI = "L\u0131nguistics";
+
+    assertThat(dotlessI.equalsIgnoreCase("Linguistics"), is(true));
+    assertThat(dictionary.encode(dotlessI), is(dictionary.encode("LINGUISTICS")));
+    assertThat(dictionary.encode("Stra\u00dfe") == dictionary.encode("STRASSE"), is(false));
+  }
+
+  @Test
+  public void testExamResultHoldsItsExactNameAndSubject() {
+    final ExamResult maths = new ExamResult("Algebra", 60);
+    final ExamResult lowerCaseMaths = new ExamResult("algebra", 70);
+
+    assertThat(maths.getExam(), is("Algebra"));
+    assertThat(lowerCaseMaths.getExam(), is("algebra"));
+    assertThat(lowerCaseMaths.getSubjectCode(), is(maths.getSubjectCode()));
+  }
+
+  @Test
+  public void testExamResultWithNullExam() {
+    final ExamResult result = new ExamResult(null, 50);
+
+    assertThat(result.getExam(), is((String) null));
+    assertThat(result.getSubjectCode(), is(SubjectDictionary.UNKNOWN));
+    assertThat(SubjectDictionary.shared().isSubject("Maths").test(result), is(false));
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.ExamResult;
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * An index of the exam scores awarded for each subject, in each graduation year, which is maintained incrementally as
+ * exam results are added to indexed students. Answers the query in
+ * {@link StreamApiExamplesTest#testChainStreamOperations()} - the highest score for a subject in a graduation year -
+ * without re-streaming every student and flat-mapping every exam result.
+ * <p>
+ * The scores for each (subject, graduation year) are held as a sorted multiset of score to no. of results, so the
+ * max and min are answered in O(log n), the count in O(1), and the top-N by walking at most N scores from the top.
+ * <p>
+ * Students who have not (yet) graduated are registered but not indexed until their graduation date is set. All
+ * methods are synchronized, so the index can be queried while it's being updated.
+ */
+final class TopScoreIndex implements Student.Listener {
+
+  private final Map<Key, Scores> index = new HashMap<>();
+  /** The students which have been added, by identity, so a student's scores are only counted once. */
+  private final Set<Student> students = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * @param students The students to index.
+   * @return A new index of the supplied students, which is notified of subsequent changes to them.
+   */
+  static TopScoreIndex of(Collection<Student> students) {
+    final TopScoreIndex index = new TopScoreIndex();
+    students.forEach(index::add);
+    return index;
+  }
+
+  /**
+   * Adds a student's existing exam results to the index, and registers the index to be notified of changes to the
+   * student's exam results and graduation date. Adding a student who has already been added has no effect.
+   *
+   * @param student The student.
+   * @return True if the student was added, or false if the student had already been added.
+   */
+  synchronized boolean add(Student student) {
+    if (!this.students.add(student)) {
+      return false;
+    }
+    updateScores(student, student.getGraduationDate(), 1);
+    student.addListener(this);
+    return true;
+  }
+
+  @Override
+  public synchronized void examResultAdded(Student student, ExamResult examResult) {
+    if (student.getGraduationDate() != null) {
+      updateScore(examResult, student.getGraduationDate().getYear(), 1);
+    }
+  }
+
+  @Override
+  public synchronized void graduationDateChanged(Student student, LocalDate previousGraduationDate) {
+    updateScores(student, previousGraduationDate, -1);
+    updateScores(student, student.getGraduationDate(), 1);
+  }
+
+  /**
+   * @param subject The exam subject, e.g. "Maths".
+   * @param graduationYear The graduation year.
+   * @return The highest score awarded for the subject in the graduation year, if any.
+   */
+  synchronized OptionalInt max(String subject, int graduationYear) {
+    final Scores scores = this.index.get(new Key(subject, graduationYear));
+    return scores == null ? OptionalInt.empty() : OptionalInt.of(scores.counts.lastKey());
+  }
+
+  /**
+   * @param subject The exam subject, e.g. "Maths".
+   * @param graduationYear The graduation year.
+   * @return The lowest score awarded for the subject in the graduation year, if any.
+   */
+  synchronized OptionalInt min(String subject, int graduationYear) {
+    final Scores scores = this.index.get(new Key(subject, graduationYear));
+    return scores == null ? OptionalInt.empty() : OptionalInt.of(scores.counts.firstKey());
+  }
+
+  /**
+   * @param subject The exam subject, e.g. "Maths".
+   * @param graduationYear The graduation year.
+   * @return The no. of exam results for the subject in the graduation year.
+   */
+  synchronized int count(String subject, int graduationYear) {
+    final Scores scores = this.index.get(new Key(subject, graduationYear));
+    return scores == null ? 0 : scores.size;
+  }
+
+  /**
+   * @param subject The exam subject, e.g. "Maths".
+   * @param graduationYear The graduation year.
+   * @param n The max no. of scores to return.
+   * @return The top (at most) n scores for the subject in the graduation year, highest first, including duplicates.
+   */
+  synchronized int[] topN(String subject, int graduationYear, int n) {
+    final Scores scores = this.index.get(new Key(subject, graduationYear));
+    final int[] top = new int[scores == null ? 0 : Math.min(n, scores.size)];
+    int i = 0;
+    if (scores != null) {
+      for (Map.Entry<Integer, Integer> entry : scores.counts.descendingMap().entrySet()) {
+        for (int count = entry.getValue(); count > 0 && i < top.length; count--) {
+          top[i++] = entry.getKey();
+        }
+        if (i == top.length) {
+          break;
+        }
+      }
+    }
+    return top;
+  }
+
+  private void updateScores(Student student, LocalDate graduationDate, int delta) {
+    if (graduationDate != null) {
+      final int graduationYear = graduationDate.getYear();
+      student.getExamResults().forEach(er -> updateScore(er, graduationYear, delta));
+    }
+  }
+
+  private void updateScore(ExamResult examResult, int graduationYear, int delta) {
+    final Key key = new Key(examResult.getExam(), graduationYear);
+    final Scores scores = this.index.computeIfAbsent(key, k -> new Scores());
+    scores.counts.merge(examResult.getScore(), delta, (count1, count2) -> count1 + count2 == 0 ? null : count1 + count2);
+    scores.size += delta;
+    if (scores.size == 0) {
+      this.index.remove(key);
+    }
+  }
+
+  /**
+   * The key of the index - an exam subject and graduation year.
+   */
+  private static final class Key {
+    private final String subject;
+    private final int graduationYear;
+
+    Key(String subject, int graduationYear) {
+      this.subject = subject;
+      this.graduationYear = graduationYear;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return this.graduationYear == other.graduationYear && Objects.equals(this.subject, other.subject);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Objects.hashCode(this.subject) + this.graduationYear;
+    }
+  }
+
+  /**
+   * A sorted multiset of scores - each score mapped to the no. of results with that score.
+   */
+  private static final class Scores {
+    private final NavigableMap<Integer, Integer> counts = new TreeMap<>();
+    private int size;
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.seminar.examples.java8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.seminar.examples.java8.StreamApiExamplesTest.ExamResult;
+import com.seminar.examples.java8.StreamApiExamplesTest.Student;
+
+/**
+ * Tests that {@link TopScoreIndex} answers queries the same way as the stream pipeline in
+ * {@link StreamApiExamplesTest#testChainStreamOperations()}, as students and exam results are added.
+ */
+public class TopScoreIndexTest {
+
+  private List<Student> students;
+
+  @Before
+  public void setUp() {
+    this.students = new ArrayList<>();
+    final Student s1 = new Student(LocalDate.of(1974, Month.JUNE, 21), "joe.bloggs@test.net");
+    s1.setGraduationDate(LocalDate.parse("2014-09-12"));
+    s1.addExamResult(new ExamResult("Maths", 75));
+    s1.addExamResult(new ExamResult("Physics", 69));
+    s1.addExamResult(new ExamResult("Chemistry", 84));
+    this.students.add(s1);
+    final Student s2 = new Student(LocalDate.of(1980, Month.JANUARY, 2), "jane.bloggs@test.net");
+    s2.setGraduationDate(LocalDate.parse("2014-09-12"));
+    s2.addExamResult(new ExamResult("English Literature", 87));
+    s2.addExamResult(new ExamResult("History", 72));
+    this.students.add(s2);
+    final Student s3 = new Student(LocalDate.of(1974, Month.JUNE, 21), "jack.bloggs@test.net");
+    s3.setGraduationDate(LocalDate.parse("2014-09-12"));
+    s3.addExamResult(new ExamResult("Maths", 76));
+    s3.addExamResult(new ExamResult("Geography", 75));
+    this.students.add(s3);
+    final Student s4 = new Student(LocalDate.of(1974, Month.JULY, 12), "jenny.bloggs@test.net");
+    s4.setGraduationDate(LocalDate.parse("2013-09-12"));
+    s4.addExamResult(new ExamResult("Chemistry", 65));
+    s4.addExamResult(new ExamResult("Maths", 82));
+    this.students.add(s4);
+  }
+
+  @Test
+  public void testQueriesMatchStreamPipeline() {
+    final TopScoreIndex index = TopScoreIndex.of(this.students);
+
+    assertThat(index.max("Maths", 2014), is(maxScore("Maths", 2014)));
+    assertThat(index.max("Maths", 2014).getAsInt(), is(76));
+    assertThat(index.min("Maths", 2014).getAsInt(), is(75));
+    assertThat(index.count("Maths", 2014), is(2));
+    assertThat(index.max("Maths", 2013).getAsInt(), is(82));
+    assertThat(index.max("Geography", 2013), is(OptionalInt.empty()));
+    assertThat(index.count("Geography", 2013), is(0));
+    assertThat(index.topN("Maths", 2014, 5), is(new int[] { 76, 75 }));
+  }
+
+  @Test
+  public void testIndexIsUpdatedAsExamResultsAreAdded() {
+    final TopScoreIndex index = TopScoreIndex.of(this.students);
+
+    this.students.get(1).addExamResult(new ExamResult("Maths", 91));
+    this.students.get(0).addExamResult(new ExamResult("Maths", 75));
+
+    assertThat(index.max("Maths", 2014), is(maxScore("Maths", 2014)));
+    assertThat(index.count("Maths", 2014), is(4));
+    assertThat(index.topN("Maths", 2014, 3), is(new int[] { 91, 76, 75 }));
+    assertThat(index.topN("Maths", 2014, 10), is(new int[] { 91, 76, 75, 75 }));
+  }
+
+  @Test
+  public void testIndexIsUpdatedWhenGraduationDateChanges() {
+    final Student s5 = new Student(LocalDate.of(1981, Month.MARCH, 3), "jo.bloggs@test.net");
+    s5.addExamResult(new ExamResult("Maths", 99));
+    this.students.add(s5);
+    final TopScoreIndex index = TopScoreIndex.of(this.students);
+    assertThat(index.max("Maths", 2014).getAsInt(), is(76));
+
+    s5.setGraduationDate(LocalDate.parse("2014-07-01"));
+    assertThat(index.max("Maths", 2014).getAsInt(), is(99));
+
+    this.students.get(3).setGraduationDate(LocalDate.parse("2014-07-01"));
+    assertThat(index.max("Maths", 2013), is(OptionalInt.empty()));
+    assertThat(index.count("Maths", 2014), is(4));
+    assertThat(index.max("Maths", 2014), is(maxScore("Maths", 2014)));
+  }
+
+  @Test
+  public void testAddingStudentAgainHasNoEffect() {
+    final TopScoreIndex index = TopScoreIndex.of(this.students);
+
+    assertThat(index.add(this.students.get(0)), is(false));
+    this.students.get(0).addExamResult(new ExamResult("Maths", 91));
+    this.students.get(3).setGraduationDate(LocalDate.parse("2014-07-01"));
+
+    assertThat(index.count("Maths", 2014), is(4));
+    assertThat(index.topN("Maths", 2014, 10), is(new int[] { 91, 82, 76, 75 }));
+  }
+
+  private OptionalInt maxScore(String subject, int graduationYear) {
+    return this.students.stream()
+        .filter(s -> s.getGraduationDate() != null && s.getGraduationDate().getYear() == graduationYear)
+        .flatMap(s -> s.getExamResults().stream())
+        .filter(er -> subject.equals(er.getExam()))
+        .mapToInt(ExamResult::getScore)
+        .max();
+  }
+}